@@ -0,0 +1,68 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.JacksonConfiguration;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reading a booking request body and writing an appointment back, with the
+ * {@code HH:mm dd/MM/yyyy} date formats of {@link JacksonConfiguration} on the
+ * same kind of mapper Spring MVC uses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Appointment appointment;
+    private byte[] requestBody;
+
+    @Setup
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        objectMapper = builder.build();
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(12);
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(7);
+        LocalDateTime startsAt = LocalDateTime.of(2023, 7, 4, 10, 0);
+        appointment = new Appointment(patient, doctor, new Room("Dermatology"), startsAt, startsAt.plusMinutes(30));
+        appointment.setId(41);
+        requestBody = objectMapper.writeValueAsBytes(appointment);
+    }
+
+    @Benchmark
+    public Appointment readAppointment() throws Exception {
+        return objectMapper.readValue(requestBody, Appointment.class);
+    }
+
+    @Benchmark
+    public byte[] writeAppointment() throws Exception {
+        return objectMapper.writeValueAsBytes(appointment);
+    }
+}
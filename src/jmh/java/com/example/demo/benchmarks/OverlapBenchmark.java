@@ -0,0 +1,87 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link Appointment#overlaps} against the case-by-case predicate it replaced,
+ * over the same random pairs: a few rooms, so both the same-room path and the
+ * different-room path are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OverlapBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    private final Appointment[] left = new Appointment[PAIRS];
+    private final Appointment[] right = new Appointment[PAIRS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        Room[] rooms = {new Room("Dentist"), new Room("Oncology"), new Room("Dermatology")};
+        LocalDateTime day = LocalDateTime.of(2023, 7, 4, 8, 0);
+        for (int i = 0; i < PAIRS; i++) {
+            left[i] = appointment(random, rooms, day);
+            right[i] = appointment(random, rooms, day);
+        }
+    }
+
+    @Benchmark
+    public void overlaps(Blackhole blackhole) {
+        for (int i = 0; i < PAIRS; i++) {
+            blackhole.consume(left[i].overlaps(right[i]));
+        }
+    }
+
+    @Benchmark
+    public void previousOverlaps(Blackhole blackhole) {
+        for (int i = 0; i < PAIRS; i++) {
+            blackhole.consume(previousOverlaps(left[i], right[i]));
+        }
+    }
+
+    // the predicate as it was, case gaps included, kept as the baseline
+    private static boolean previousOverlaps(Appointment self, Appointment appointment) {
+        if (appointment.getRoom().getRoomName().equals(self.getRoom().getRoomName())) {
+            if (self.getStartsAt().equals(appointment.getStartsAt()) ||
+                    appointment.getFinishesAt().equals(self.getFinishesAt())) {
+                return true;
+            }
+            if (appointment.getFinishesAt().isAfter(self.getStartsAt()) && appointment.getFinishesAt().isBefore(self.getFinishesAt())) {
+                return true;
+            }
+            if (appointment.getStartsAt().isAfter(self.getStartsAt()) && appointment.getStartsAt().isBefore(self.getFinishesAt())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Appointment appointment(Random random, Room[] rooms, LocalDateTime day) {
+        LocalDateTime startsAt = day.plusMinutes(random.nextInt(600));
+        return new Appointment(null, null, rooms[random.nextInt(rooms.length)],
+                startsAt, startsAt.plusMinutes(15 + random.nextInt(60)));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.TechhubApplication;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Repository round trips on the embedded H2 database of the tests: the
+ * appointment insert, the lookup by id and the per-room range probe booking
+ * relies on. The application starts without its web layer; the table holds
+ * {@link #STORED} appointments before measuring starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    private static final int STORED = 10_000;
+    private static final LocalDateTime FIRST_SLOT = LocalDateTime.of(2023, 1, 2, 8, 0);
+
+    private ConfigurableApplicationContext context;
+    private AppointmentRepository appointmentRepository;
+    private Patient patient;
+    private Doctor doctor;
+    private Room room;
+    private long firstId;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(TechhubApplication.class).web(WebApplicationType.NONE).run();
+        appointmentRepository = context.getBean(AppointmentRepository.class);
+        patient = context.getBean(PatientRepository.class).save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        doctor = context.getBean(DoctorRepository.class).save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        room = context.getBean(RoomRepository.class).save(new Room("Dermatology"));
+        for (int i = 0; i < STORED; i++) {
+            Appointment appointment = appointmentRepository.save(newAppointment());
+            firstId = i == 0 ? appointment.getId() : firstId;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Appointment save() {
+        return appointmentRepository.save(newAppointment());
+    }
+
+    @Benchmark
+    public Appointment findById() {
+        return appointmentRepository.findById(firstId + next++ % STORED).orElse(null);
+    }
+
+    @Benchmark
+    public boolean existsOverlapping() {
+        LocalDateTime startsAt = FIRST_SLOT.plusMinutes(30L * (next++ % STORED) + 15);
+        return appointmentRepository.existsOverlapping(room.getRoomName(), startsAt, startsAt.plusMinutes(30));
+    }
+
+    // every new appointment takes the slot after the last one, so the table only grows forward
+    private Appointment newAppointment() {
+        LocalDateTime startsAt = FIRST_SLOT.plusMinutes(30L * next++);
+        return new Appointment(patient, doctor, room, startsAt, startsAt.plusMinutes(30));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.benchmarks;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Room;
+import com.example.demo.services.AppointmentScheduleIndex;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The booking overlap check over 1k, 100k and 1M stored appointments:
+ * {@link AppointmentScheduleIndex#overlaps} against the scan over every
+ * appointment that {@code AppointmentController.isAppointmentsOverlap} ran
+ * before the index replaced it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ScheduleIndexBenchmark {
+
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2023, 1, 2, 8, 0);
+    private static final int ROOMS = 50;
+    private static final int SLOTS_PER_DAY = 20;
+
+    @Param({"1000", "100000", "1000000"})
+    public int appointments;
+
+    private final List<Appointment> stored = new ArrayList<>();
+    private final AppointmentScheduleIndex index = new AppointmentScheduleIndex();
+    private final Appointment[] candidates = new Appointment[256];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Room[] rooms = new Room[ROOMS];
+        for (int i = 0; i < ROOMS; i++) {
+            rooms[i] = new Room("Room " + i);
+        }
+        // back-to-back 30 minute slots, every room filled day by day
+        for (int i = 0; i < appointments; i++) {
+            int slot = i / ROOMS;
+            LocalDateTime startsAt = FIRST_DAY.plusDays(slot / SLOTS_PER_DAY).plusMinutes(30L * (slot % SLOTS_PER_DAY));
+            Appointment appointment = new Appointment(null, null, rooms[i % ROOMS], startsAt, startsAt.plusMinutes(30));
+            appointment.setId(i + 1L);
+            stored.add(appointment);
+            index.add(appointment);
+        }
+        // half of the candidates clash with a stored slot, half fall in the evening gap
+        Random random = new Random(1);
+        int days = Math.max(1, appointments / ROOMS / SLOTS_PER_DAY);
+        for (int i = 0; i < candidates.length; i++) {
+            LocalDateTime day = FIRST_DAY.plusDays(random.nextInt(days));
+            LocalDateTime startsAt = i % 2 == 0 ? day.plusMinutes(15) : day.plusHours(12);
+            candidates[i] = new Appointment(null, null, rooms[random.nextInt(ROOMS)], startsAt, startsAt.plusMinutes(30));
+        }
+    }
+
+    @Benchmark
+    public boolean index() {
+        return index.overlaps(nextCandidate());
+    }
+
+    @Benchmark
+    public boolean scan() {
+        Appointment candidate = nextCandidate();
+        for (Appointment appointment : stored) {
+            if (appointment.overlaps(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Appointment nextCandidate() {
+        return candidates[next++ & (candidates.length - 1)];
+    }
+}
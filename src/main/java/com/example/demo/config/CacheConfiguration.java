@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches the responses of the GET-by-id endpoints, which kiosk and mobile
+ * clients poll far more often than the answers change.
+ * <p>
+ * The caches are Caffeine caches sized by {@code spring.cache.caffeine.spec}
+ * and listed in {@code spring.cache.cache-names}, so their hit and miss counts
+ * are published as {@code cache.gets} metrics. Only found entities are cached.
+ * Deletes evict the affected entries; deleting a doctor, patient or room in
+ * bulk also drops every cached appointment. Created doctors, patients and
+ * appointments get fresh ids that cannot be cached yet, so only creating a
+ * room, which is keyed by its name, evicts an entry.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String DOCTOR_BY_ID = "doctor-by-id";
+    public static final String PATIENT_BY_ID = "patient-by-id";
+    public static final String ROOM_BY_NAME = "room-by-name";
+    public static final String APPOINTMENT_BY_ID = "appointment-by-id";
+
+}
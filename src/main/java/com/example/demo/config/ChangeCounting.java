@@ -0,0 +1,122 @@
+package com.example.demo.config;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import com.example.demo.entities.ChangeCounter;
+
+/**
+ * Raises a {@link ChangeCounter} row of every listed table a transaction
+ * writes to, right before that transaction commits.
+ * <p>
+ * Entity inserts, updates and deletes are reported by the post-action events
+ * this integrator listens to. Bulk JPQL statements raise no event: the ones
+ * the repositories issue are reported by {@link ChangeCountingConfiguration}.
+ * A single update then counts the tables once per transaction, after the
+ * final flush, on one shard per table picked at random: the counter rows
+ * stay locked only for the commit itself, and concurrent writers seldom
+ * queue on the same one.
+ */
+public final class ChangeCounting implements Integrator,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String INCREMENT = "update ChangeCounter c " +
+            "set c.changes = c.changes + 1, c.lastChanged = :now where c.shard = :shard and c.tableName in :tables";
+
+    // sessions are confined to one thread; an entry lasts until its transaction completes
+    private final transient Map<SessionImplementor, Set<String>> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry listeners = serviceRegistry.getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, this);
+        listeners.appendListeners(EventType.POST_UPDATE, this);
+        listeners.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getSession(), event.getPersister());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Reports a bulk statement on the tables of an entity, inside the
+     * transaction that executed it.
+     */
+    public void changed(SessionImplementor session, Class<?> entityType) {
+        changed(session, session.getFactory().getMetamodel().entityPersister(entityType));
+    }
+
+    private void changed(SessionImplementor session, EntityPersister persister) {
+        for (Serializable table : persister.getPropertySpaces()) {
+            if (ChangeCounter.TABLES.contains(table)) {
+                pending(session).add((String) table);
+            }
+        }
+    }
+
+    private Set<String> pending(SessionImplementor session) {
+        Set<String> tables = pending.get(session);
+        if (tables == null) {
+            Set<String> changed = new TreeSet<>();
+            tables = changed;
+            pending.put(session, changed);
+            ActionQueue actionQueue = session.getActionQueue();
+            actionQueue.registerProcess((BeforeTransactionCompletionProcess) completing -> increment(completing, changed));
+            actionQueue.registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(completed));
+        }
+        return tables;
+    }
+
+    private static void increment(SessionImplementor session, Set<String> tables) {
+        session.createQuery(INCREMENT)
+                .setParameter("now", Instant.now().truncatedTo(ChronoUnit.MICROS))
+                .setParameter("shard", ThreadLocalRandom.current().nextInt(ChangeCounter.SHARDS))
+                .setParameterList("tables", tables)
+                .executeUpdate();
+    }
+}
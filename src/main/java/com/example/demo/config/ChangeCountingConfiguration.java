@@ -0,0 +1,89 @@
+package com.example.demo.config;
+
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+
+/**
+ * Counts writes per listed table (see {@link ChangeCounting}). The list
+ * endpoints' {@code ETag}s depend on it, so unlike the diagnostics it cannot
+ * be switched off.
+ */
+@Configuration
+public class ChangeCountingConfiguration {
+
+    @Bean
+    public ChangeCounting changeCounting() {
+        return new ChangeCounting();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer changeCountingHibernateCustomizer(ChangeCounting changeCounting) {
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> Collections.singletonList(changeCounting));
+    }
+
+    // Bulk JPQL statements raise no entity event: every repository reports its
+    // @Modifying and batch delete methods on its own entity's tables.
+    @Bean
+    public static BeanPostProcessor bulkChangeCountingPostProcessor(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                                                    ObjectProvider<ChangeCounting> changeCounting) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, repository) -> proxy.addAdvice(
+                                    new BulkChangeCounting(entityManagerFactory, changeCounting, repository.getDomainType()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static final class BulkChangeCounting implements MethodInterceptor {
+
+        private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+        private final ObjectProvider<ChangeCounting> changeCounting;
+        private final Class<?> entityType;
+
+        BulkChangeCounting(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                           ObjectProvider<ChangeCounting> changeCounting, Class<?> entityType) {
+            this.entityManagerFactory = entityManagerFactory;
+            this.changeCounting = changeCounting;
+            this.entityType = entityType;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            boolean bulk = invocation.getMethod().isAnnotationPresent(Modifying.class)
+                    || invocation.getMethod().getName().endsWith("InBatch");
+            // a statement that affected no row changed nothing
+            if (bulk && !Integer.valueOf(0).equals(result)) {
+                // advised after the transaction interceptor, so a @Transactional method's own transaction is open
+                EntityManager entityManager =
+                        EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory.getObject());
+                if (entityManager != null) {
+                    changeCounting.getObject().changed(entityManager.unwrap(SessionImplementor.class), entityType);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.config;
+
+import java.io.Serializable;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+/**
+ * What one HTTP request cost in the database: JDBC round trips, the time spent
+ * executing them and the entities Hibernate loaded.
+ * <p>
+ * {@link RequestDiagnosticsFilter} opens a recording for each request on its
+ * thread; {@link SessionListener} (registered for every session) and
+ * {@link EntityLoadInterceptor} add to it. Work done outside a request, such
+ * as the schedule warm-up or the streamed export, is not recorded.
+ */
+public final class RequestDiagnostics {
+
+    private static final ThreadLocal<RequestDiagnostics> CURRENT = new ThreadLocal<>();
+
+    private final long startedAt = System.nanoTime();
+    private int statements;
+    private long databaseNanos;
+    private int entitiesLoaded;
+
+    private RequestDiagnostics() {
+    }
+
+    static RequestDiagnostics start() {
+        RequestDiagnostics diagnostics = new RequestDiagnostics();
+        CURRENT.set(diagnostics);
+        return diagnostics;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getDatabaseNanos() {
+        return databaseNanos;
+    }
+
+    public int getEntitiesLoaded() {
+        return entitiesLoaded;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    /**
+     * Times every statement execution and JDBC batch of a session. Hibernate
+     * creates one listener per session, on the thread that opened it.
+     */
+    public static class SessionListener extends BaseSessionEventListener {
+
+        private long executionStartedAt;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            executionStartedAt = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            executed();
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            executionStartedAt = System.nanoTime();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            executed();
+        }
+
+        private void executed() {
+            RequestDiagnostics diagnostics = CURRENT.get();
+            if (diagnostics != null) {
+                diagnostics.statements++;
+                diagnostics.databaseNanos += System.nanoTime() - executionStartedAt;
+            }
+        }
+    }
+
+    /**
+     * Counts entity loads, from rows or from the second-level cache. Shared by
+     * all sessions, so it keeps no state of its own.
+     */
+    public static class EntityLoadInterceptor extends EmptyInterceptor {
+
+        @Override
+        public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+            RequestDiagnostics diagnostics = CURRENT.get();
+            if (diagnostics != null) {
+                diagnostics.entitiesLoaded++;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per-request database diagnostics (see {@link RequestDiagnostics}), on unless
+ * {@code diagnostics.enabled=false}. Requests slower than
+ * {@code diagnostics.slow-request} or running more than
+ * {@code diagnostics.max-statements} statements are logged as warnings. The
+ * {@code Server-Timing} response header is off unless
+ * {@code diagnostics.server-timing=true}: turn it on only where the callers
+ * are trusted, such as a development or staging deployment.
+ */
+@Configuration
+@ConditionalOnProperty(name = "diagnostics.enabled", matchIfMissing = true)
+public class RequestDiagnosticsConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer requestDiagnosticsHibernateCustomizer() {
+        return properties -> {
+            properties.put("hibernate.session.events.auto", RequestDiagnostics.SessionListener.class.getName());
+            properties.put("hibernate.session_factory.interceptor", new RequestDiagnostics.EntityLoadInterceptor());
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestDiagnosticsFilter> requestDiagnosticsFilter(
+            @Value("${diagnostics.slow-request:500ms}") Duration slowRequest,
+            @Value("${diagnostics.max-statements:20}") int maxStatements,
+            @Value("${diagnostics.server-timing:false}") boolean serverTiming) {
+        FilterRegistrationBean<RequestDiagnosticsFilter> registration =
+                new FilterRegistrationBean<>(new RequestDiagnosticsFilter(slowRequest, maxStatements, serverTiming));
+        // outermost, so the time covers every other filter too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
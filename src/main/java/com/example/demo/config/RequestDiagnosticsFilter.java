@@ -0,0 +1,139 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.Locale;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Records {@link RequestDiagnostics} for every request and logs the requests
+ * that were slow or ran too many statements, the usual sign of an N+1 query.
+ * When asked to, it also answers the numbers in a {@code Server-Timing}
+ * header: they describe the database work behind each endpoint, so they are
+ * only sent where every caller may see them.
+ * <p>
+ * The header has to go out before the body, so it reports the work done up to
+ * the first byte written; the log line is written at the end and has the
+ * final numbers.
+ */
+public class RequestDiagnosticsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestDiagnosticsFilter.class);
+
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private final Duration slowRequest;
+    private final int maxStatements;
+    private final boolean serverTiming;
+
+    public RequestDiagnosticsFilter(Duration slowRequest, int maxStatements, boolean serverTiming) {
+        this.slowRequest = slowRequest;
+        this.maxStatements = maxStatements;
+        this.serverTiming = serverTiming;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestDiagnostics diagnostics = RequestDiagnostics.start();
+        ServerTimingResponse timedResponse = serverTiming ? new ServerTimingResponse(response, diagnostics) : null;
+        try {
+            chain.doFilter(request, timedResponse == null ? response : timedResponse);
+        } finally {
+            RequestDiagnostics.end();
+            if (timedResponse != null) {
+                timedResponse.addServerTiming();
+            }
+            report(request, response, diagnostics);
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, RequestDiagnostics diagnostics) {
+        long elapsedNanos = diagnostics.getElapsedNanos();
+        boolean slow = elapsedNanos > slowRequest.toNanos();
+        if (slow || diagnostics.getStatements() > maxStatements) {
+            log.warn("{} request {} {} -> {}: {} ms, {} statements taking {} ms, {} entities loaded",
+                    slow ? "Slow" : "Chatty", request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    millis(elapsedNanos), diagnostics.getStatements(), millis(diagnostics.getDatabaseNanos()),
+                    diagnostics.getEntitiesLoaded());
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} {} -> {}: {} ms, {} statements taking {} ms, {} entities loaded",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(), millis(elapsedNanos),
+                    diagnostics.getStatements(), millis(diagnostics.getDatabaseNanos()), diagnostics.getEntitiesLoaded());
+        }
+    }
+
+    static String serverTiming(RequestDiagnostics diagnostics) {
+        return String.format(Locale.ROOT, "db;dur=%s;desc=\"%d statements\", entities;desc=\"%d loaded\", app;dur=%s",
+                millis(diagnostics.getDatabaseNanos()), diagnostics.getStatements(), diagnostics.getEntitiesLoaded(),
+                millis(diagnostics.getElapsedNanos()));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Adds the header right before the response is committed: on the first
+     * access to the body, on an explicit flush, or at the end of the request
+     * when nothing was written.
+     */
+    private static final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestDiagnostics diagnostics;
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response, RequestDiagnostics diagnostics) {
+            super(response);
+            this.diagnostics = diagnostics;
+        }
+
+        void addServerTiming() {
+            if (!added && !isCommitted()) {
+                setHeader(SERVER_TIMING, serverTiming(diagnostics));
+            }
+            added = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+    }
+}
@@ -1,11 +1,28 @@
 package com.example.demo.controllers;
 
+import com.example.demo.config.CacheConfiguration;
+import com.example.demo.dto.AppointmentSummary;
 import com.example.demo.entities.Appointment;
 import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentExportService;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BookingMetrics;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.BulkDeletionService;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -17,11 +34,45 @@ import java.util.Optional;
 @RequestMapping("/api")
 public class AppointmentController {
 
+    // endpoint tag of booking.rejected
+    private static final String SINGLE = "single";
+    private static final String BATCH = "batch";
+
     @Autowired
     AppointmentRepository appointmentRepository;
 
+    @Autowired
+    AppointmentScheduleIndex appointmentScheduleIndex;
+
+    @Autowired
+    AppointmentBookingService appointmentBookingService;
+
+    @Autowired
+    AppointmentExportService appointmentExportService;
+
+    @Autowired
+    BulkDeletionService bulkDeletionService;
+
+    @Autowired
+    BookingMetrics bookingMetrics;
+
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
+    public ResponseEntity<List<Appointment>> getAllAppointments(@RequestParam(value = "page", required = false) Integer page,
+                                                                @RequestParam(value = "size", required = false) Integer size,
+                                                                @RequestParam(value = "after", required = false) Long after,
+                                                                WebRequest request) {
+        if (ConditionalResponses.isNotModified(request, appointmentRepository.findTableVersion())) {
+            return null;
+        }
+
+        if (SliceResponses.isPaged(page, size, after)) {
+            Pageable pageable = SliceResponses.pageable(page, size, after, "id");
+            Slice<Appointment> slice = after == null
+                    ? appointmentRepository.findAllBy(pageable)
+                    : appointmentRepository.findByIdGreaterThan(after, pageable);
+            return SliceResponses.of(slice, Appointment::getId, after != null);
+        }
+
         List<Appointment> appointments = new ArrayList<>();
 
         appointmentRepository.findAll().forEach(appointments::add);
@@ -33,12 +84,59 @@ public class AppointmentController {
         return new ResponseEntity<>(appointments, HttpStatus.OK);
     }
 
+    @GetMapping(value = "/appointments", params = "view=summary")
+    public ResponseEntity<List<AppointmentSummary>> getAllAppointmentSummaries(@RequestParam(value = "page", required = false) Integer page,
+                                                                               @RequestParam(value = "size", required = false) Integer size,
+                                                                               @RequestParam(value = "after", required = false) Long after,
+                                                                WebRequest request) {
+        if (ConditionalResponses.isNotModified(request, appointmentRepository.findTableVersion())) {
+            return null;
+        }
+
+        if (SliceResponses.isPaged(page, size, after)) {
+            Pageable pageable = SliceResponses.pageable(page, size, after, "id");
+            Slice<AppointmentSummary> slice = after == null
+                    ? appointmentRepository.findAllSummaries(pageable)
+                    : appointmentRepository.findSummariesByIdGreaterThan(after, pageable);
+            return SliceResponses.of(slice, AppointmentSummary::getId, after != null);
+        }
+
+        List<AppointmentSummary> summaries = appointmentRepository.findAllSummaries();
+
+        if (summaries.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        return new ResponseEntity<>(summaries, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/appointments/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAppointments() {
+        // written on an async thread while the cursor is read, never materialized as a list
+        StreamingResponseBody body = appointmentExportService::writeNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/appointments/{id}")
+    @Cacheable(cacheNames = CacheConfiguration.APPOINTMENT_BY_ID, key = "#id", unless = "!#result.statusCode.is2xxSuccessful()")
     public ResponseEntity<Appointment> getAppointmentById(@PathVariable("id") long id) {
         Optional<Appointment> appointment = appointmentRepository.findById(id);
 
         if (appointment.isPresent()) {
-            return new ResponseEntity<>(appointment.get(), HttpStatus.OK);
+            return ConditionalResponses.ok(appointment.get(), appointment.get().getLastModified());
+        } else {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping(value = "/appointments/{id}", params = "view=summary")
+    public ResponseEntity<AppointmentSummary> getAppointmentSummaryById(@PathVariable("id") long id) {
+        Optional<AppointmentSummary> summary = appointmentRepository.findSummaryById(id);
+
+        if (summary.isPresent()) {
+            return new ResponseEntity<>(summary.get(), HttpStatus.OK);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -46,42 +144,101 @@ public class AppointmentController {
 
     @PostMapping("/appointment")
     public ResponseEntity<List<Appointment>> createAppointment(@RequestBody Appointment appointment) {
-        if (areRequiredFieldsNull(appointment))
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        Timer.Sample validation = bookingMetrics.start();
+        boolean requiredFieldsNull = areRequiredFieldsNull(appointment);
+        bookingMetrics.stop(validation, BookingMetrics.VALIDATION);
+        if (requiredFieldsNull)
+            return rejected(SINGLE, HttpStatus.BAD_REQUEST);
 
-        if (areConflictBetweenDates(appointment.getStartsAt(), appointment.getFinishesAt()))
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        Timer.Sample dates = bookingMetrics.start();
+        boolean conflictBetweenDates = areConflictBetweenDates(appointment.getStartsAt(), appointment.getFinishesAt());
+        bookingMetrics.stop(dates, BookingMetrics.DATES);
+        if (conflictBetweenDates)
+            return rejected(SINGLE, HttpStatus.BAD_REQUEST);
 
-        if (isAppointmentsOverlap(appointmentRepository.findAll(), appointment))
-            return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+        BookingResult result;
+        try {
+            result = appointmentBookingService.book(appointment);
+        } catch (DataIntegrityViolationException e) {
+            // a patient or doctor referenced by id does not exist
+            return rejected(SINGLE, HttpStatus.BAD_REQUEST);
+        }
 
-        appointmentRepository.save(appointment);
+        if (result == BookingResult.OVERLAP)
+            return rejected(SINGLE, HttpStatus.NOT_ACCEPTABLE);
+
+        if (result == BookingResult.CONTENDED)
+            return rejected(SINGLE, HttpStatus.CONFLICT);
 
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
 
+    @PostMapping("/appointments/batch")
+    public ResponseEntity<List<AppointmentSummary>> createAppointments(@RequestBody List<Appointment> appointments) {
+        if (appointments.isEmpty())
+            return rejected(BATCH, HttpStatus.BAD_REQUEST);
+
+        Timer.Sample validation = bookingMetrics.start();
+        boolean invalid = false;
+        for (Appointment appointment : appointments) {
+            if (Objects.isNull(appointment) || areRequiredFieldsNull(appointment)
+                    || areConflictBetweenDates(appointment.getStartsAt(), appointment.getFinishesAt())) {
+                invalid = true;
+                break;
+            }
+        }
+        bookingMetrics.stop(validation, BookingMetrics.VALIDATION);
+        if (invalid)
+            return rejected(BATCH, HttpStatus.BAD_REQUEST);
+
+        // all or nothing: one overlapping slot rejects the whole batch
+        BookingResult result;
+        try {
+            result = appointmentBookingService.bookAll(appointments);
+        } catch (DataIntegrityViolationException e) {
+            return rejected(BATCH, HttpStatus.BAD_REQUEST);
+        }
+
+        if (result == BookingResult.OVERLAP)
+            return rejected(BATCH, HttpStatus.NOT_ACCEPTABLE);
+
+        if (result == BookingResult.CONTENDED)
+            return rejected(BATCH, HttpStatus.CONFLICT);
+
+        // referenced participants are unloaded proxies: answer with their ids
+        List<AppointmentSummary> booked = new ArrayList<>(appointments.size());
+        appointments.forEach(appointment -> booked.add(AppointmentSummary.of(appointment)));
+
+        return new ResponseEntity<>(booked, HttpStatus.OK);
+    }
+
     @DeleteMapping("/appointments/{id}")
+    @CacheEvict(cacheNames = CacheConfiguration.APPOINTMENT_BY_ID, key = "#id")
     public ResponseEntity<HttpStatus> deleteAppointment(@PathVariable("id") long id) {
 
-        Optional<Appointment> appointment = appointmentRepository.findById(id);
-
-        if (!appointment.isPresent()) {
+        if (appointmentRepository.removeById(id) == 0) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        appointmentRepository.deleteById(id);
+        appointmentScheduleIndex.remove(id);
 
         return new ResponseEntity<>(HttpStatus.OK);
 
     }
 
     @DeleteMapping("/appointments")
+    @CacheEvict(cacheNames = CacheConfiguration.APPOINTMENT_BY_ID, allEntries = true)
     public ResponseEntity<HttpStatus> deleteAllAppointments() {
-        appointmentRepository.deleteAll();
+        bulkDeletionService.deleteAllAppointments();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    private <T> ResponseEntity<T> rejected(String endpoint, HttpStatus status) {
+        bookingMetrics.rejected(endpoint, status.name());
+        return new ResponseEntity<>(status);
+    }
+
     private boolean areRequiredFieldsNull(Appointment appointment) {
         if (Objects.isNull(appointment.getPatient()) ||
                 Objects.isNull(appointment.getDoctor()) ||
@@ -89,36 +246,36 @@ public class AppointmentController {
             return true;
         }
 
-        if (appointment.getPatient().getFirstName().trim().isEmpty() ||
-                appointment.getPatient().getLastName().trim().isEmpty() ||
-                appointment.getPatient().getEmail().trim().isEmpty() ||
-                appointment.getPatient().getAge() < 0) {
+        // participants referenced by id only need to exist, any other id is a new participant
+        if (appointment.getPatient().getId() <= 0 && (
+                isBlank(appointment.getPatient().getFirstName()) ||
+                isBlank(appointment.getPatient().getLastName()) ||
+                isBlank(appointment.getPatient().getEmail()) ||
+                appointment.getPatient().getAge() < 0)) {
             return true;
         }
 
-        if (appointment.getDoctor().getFirstName().trim().isEmpty() ||
-                appointment.getDoctor().getLastName().trim().isEmpty() ||
-                appointment.getDoctor().getEmail().trim().isEmpty() ||
-                appointment.getDoctor().getAge() < 18) {
+        if (appointment.getDoctor().getId() <= 0 && (
+                isBlank(appointment.getDoctor().getFirstName()) ||
+                isBlank(appointment.getDoctor().getLastName()) ||
+                isBlank(appointment.getDoctor().getEmail()) ||
+                appointment.getDoctor().getAge() < 18)) {
             return true;
         }
 
-        if (appointment.getRoom().getRoomName().trim().isEmpty()) {
+        if (isBlank(appointment.getRoom().getRoomName())) {
             return true;
         }
 
         return false;
     }
 
+    private static boolean isBlank(String value) {
+        return Objects.isNull(value) || value.trim().isEmpty();
+    }
+
     private boolean areConflictBetweenDates(LocalDateTime date1, LocalDateTime date2) {
         // checks if both dates are the same or date2 is before date1
         return date1.isEqual(date2) || date2.isBefore(date1);
     }
-
-    private boolean isAppointmentsOverlap(List<Appointment> appointments, Appointment appointment) {
-        Optional<Appointment> appointmentOptional = appointments.stream()
-                .filter(appointmentDb -> appointmentDb.overlaps(appointment))
-                .findFirst();
-        return appointmentOptional.isPresent();
-    }
 }
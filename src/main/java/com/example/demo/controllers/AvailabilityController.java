@@ -0,0 +1,53 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.services.AvailabilityService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+public class AvailabilityController {
+
+    @Autowired
+    AvailabilityService availabilityService;
+
+    // room may be repeated and defaults to every room, unknown rooms are not found; duration is in minutes
+    @GetMapping("/availability")
+    public ResponseEntity<List<FreeSlot>> getAvailability(@RequestParam(value = "room", required = false) List<String> rooms,
+                                                          @RequestParam(value = "doctor", required = false) Long doctorId,
+                                                          @RequestParam("from") @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime from,
+                                                          @RequestParam("to") @DateTimeFormat(pattern = "HH:mm dd/MM/yyyy") LocalDateTime to,
+                                                          @RequestParam(value = "duration", defaultValue = "30") int duration) {
+        if (duration <= 0 || !from.isBefore(to) || Duration.between(from, to).compareTo(AvailabilityService.MAX_RANGE) > 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Optional<List<FreeSlot>> found = availabilityService.findFreeSlots(rooms == null ? Collections.emptyList() : rooms,
+                doctorId, from, to, Duration.ofMinutes(duration));
+
+        if (!found.isPresent()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        List<FreeSlot> slots = found.get();
+        if (slots.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        return new ResponseEntity<>(slots, HttpStatus.OK);
+    }
+}
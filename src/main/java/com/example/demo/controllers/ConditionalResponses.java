@@ -0,0 +1,38 @@
+package com.example.demo.controllers;
+
+import java.time.Instant;
+
+import com.example.demo.dto.TableVersion;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Conditional GET support. Detail responses carry the entity's
+ * {@code ETag}/{@code Last-Modified}, which Spring MVC checks against
+ * {@code If-None-Match}/{@code If-Modified-Since} before writing the body, so
+ * a cached response is answered with 304 as well. List endpoints check both
+ * headers against the {@link TableVersion} of their tables first and answer
+ * 304 without loading a row.
+ */
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    static boolean isNotModified(WebRequest request, TableVersion version) {
+        return request.checkNotModified(version.getETag(), version.getLastModifiedMillis());
+    }
+
+    static <T> ResponseEntity<T> ok(T body, Instant lastModified) {
+        if (lastModified == null) {
+            // rows written before the column existed
+            return new ResponseEntity<>(body, HttpStatus.OK);
+        }
+        return ResponseEntity.ok()
+                .eTag(Long.toString(lastModified.toEpochMilli()))
+                .lastModified(lastModified)
+                .body(body);
+    }
+}
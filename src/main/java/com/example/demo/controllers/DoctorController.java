@@ -1,12 +1,20 @@
 package com.example.demo.controllers;
 
+import com.example.demo.config.CacheConfiguration;
+import com.example.demo.dto.TableVersion;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Doctor;
+import com.example.demo.services.BulkDeletionService;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +24,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
@@ -26,11 +36,31 @@ public class DoctorController {
     @Autowired
     DoctorRepository doctorRepository;
 
+    @Autowired
+    BulkDeletionService bulkDeletionService;
+
     @GetMapping("/doctors")
-    public ResponseEntity<List<Doctor>> getAllDoctors(){
+    public ResponseEntity<List<Doctor>> getAllDoctors(@RequestParam(value = "page", required = false) Integer page,
+                                                      @RequestParam(value = "size", required = false) Integer size,
+                                                      @RequestParam(value = "after", required = false) Long after,
+                                                      WebRequest request){
+        // nothing changed since the client's copy: 304 before reading a single row
+        TableVersion version = doctorRepository.findTableVersion();
+        if (ConditionalResponses.isNotModified(request, version)) {
+            return null;
+        }
+
+        if (SliceResponses.isPaged(page, size, after)) {
+            Pageable pageable = SliceResponses.pageable(page, size, after, "id");
+            Slice<Doctor> slice = after == null
+                    ? doctorRepository.findAllAtVersion(version.getVersion(), pageable)
+                    : doctorRepository.findByIdGreaterThan(after, pageable);
+            return SliceResponses.of(slice, Doctor::getId, after != null);
+        }
+
         List<Doctor> doctors = new ArrayList<>();
 
-        doctorRepository.findAll().forEach(doctors::add);
+        doctorRepository.findAllAtVersion(version.getVersion()).forEach(doctors::add);
 
         if (doctors.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -40,13 +70,14 @@ public class DoctorController {
     }
 
     @GetMapping("/doctors/{id}")
+    @Cacheable(cacheNames = CacheConfiguration.DOCTOR_BY_ID, key = "#id", unless = "!#result.statusCode.is2xxSuccessful()")
     public ResponseEntity<Doctor> getDoctorById(@PathVariable("id") long id){
         Optional<Doctor> doctor = doctorRepository.findById(id);
         if (! doctor.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        return new ResponseEntity<>(doctor.get(),HttpStatus.OK);
+        return ConditionalResponses.ok(doctor.get(), doctor.get().getLastModified());
     }
 
     @PostMapping("/doctor")
@@ -57,20 +88,22 @@ public class DoctorController {
     }
 
     @DeleteMapping("/doctors/{id}")
+    @CacheEvict(cacheNames = CacheConfiguration.DOCTOR_BY_ID, key = "#id")
     public ResponseEntity<HttpStatus> deleteDoctor(@PathVariable("id") long id){
-        Optional<Doctor> doctor = doctorRepository.findById(id);
-
-        if (! doctor.isPresent()){
+        if (doctorRepository.removeById(id) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        doctorRepository.deleteById(id);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/doctors")
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfiguration.DOCTOR_BY_ID, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfiguration.APPOINTMENT_BY_ID, allEntries = true)
+    })
     public ResponseEntity<HttpStatus> deleteAllDoctors(){
-        doctorRepository.deleteAll();
+        bulkDeletionService.deleteAllDoctors();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
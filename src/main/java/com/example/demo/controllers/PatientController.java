@@ -1,13 +1,20 @@
 
 package com.example.demo.controllers;
 
+import com.example.demo.config.CacheConfiguration;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Patient;
+import com.example.demo.services.BulkDeletionService;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +24,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
@@ -27,8 +36,26 @@ public class PatientController {
     @Autowired
     PatientRepository patientRepository;
 
+    @Autowired
+    BulkDeletionService bulkDeletionService;
+
     @GetMapping("/patients")
-    public ResponseEntity<List<Patient>> getAllPatients(){
+    public ResponseEntity<List<Patient>> getAllPatients(@RequestParam(value = "page", required = false) Integer page,
+                                                        @RequestParam(value = "size", required = false) Integer size,
+                                                        @RequestParam(value = "after", required = false) Long after,
+                                                        WebRequest request){
+        if (ConditionalResponses.isNotModified(request, patientRepository.findTableVersion())) {
+            return null;
+        }
+
+        if (SliceResponses.isPaged(page, size, after)) {
+            Pageable pageable = SliceResponses.pageable(page, size, after, "id");
+            Slice<Patient> slice = after == null
+                    ? patientRepository.findAllBy(pageable)
+                    : patientRepository.findByIdGreaterThan(after, pageable);
+            return SliceResponses.of(slice, Patient::getId, after != null);
+        }
+
         List<Patient> patients = new ArrayList<>();
 
         patientRepository.findAll().forEach(patients::add);
@@ -41,12 +68,13 @@ public class PatientController {
     }
 
     @GetMapping("/patients/{id}")
+    @Cacheable(cacheNames = CacheConfiguration.PATIENT_BY_ID, key = "#id", unless = "!#result.statusCode.is2xxSuccessful()")
     public ResponseEntity<Patient> getPatientById(@PathVariable("id") long id){
         Optional<Patient> patient = patientRepository.findById(id);
         if (! patient.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(patient.get(),HttpStatus.OK);
+        return ConditionalResponses.ok(patient.get(), patient.get().getLastModified());
     }
 
     @PostMapping("/patient")
@@ -57,18 +85,21 @@ public class PatientController {
     }
 
     @DeleteMapping("/patients/{id}")
+    @CacheEvict(cacheNames = CacheConfiguration.PATIENT_BY_ID, key = "#id")
     public ResponseEntity<HttpStatus> deletePatient(@PathVariable("id") long id){
-        Optional<Patient> patient = patientRepository.findById(id);
-        if (! patient.isPresent()){
+        if (patientRepository.removeById(id) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        patientRepository.deleteById(id);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/patients")
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfiguration.PATIENT_BY_ID, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfiguration.APPOINTMENT_BY_ID, allEntries = true)
+    })
     public ResponseEntity<HttpStatus> deleteAllPatients(){
-        patientRepository.deleteAll();
+        bulkDeletionService.deleteAllPatients();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -1,13 +1,21 @@
 
 package com.example.demo.controllers;
 
+import com.example.demo.config.CacheConfiguration;
+import com.example.demo.dto.TableVersion;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Room;
+import com.example.demo.services.BulkDeletionService;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +25,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 
 @RestController
@@ -27,11 +37,30 @@ public class RoomController {
     @Autowired
     RoomRepository roomRepository;
 
+    @Autowired
+    BulkDeletionService bulkDeletionService;
+
     @GetMapping("/rooms")
-    public ResponseEntity<List<Room>> getAllRooms(){
+    public ResponseEntity<List<Room>> getAllRooms(@RequestParam(value = "page", required = false) Integer page,
+                                                  @RequestParam(value = "size", required = false) Integer size,
+                                                  @RequestParam(value = "after", required = false) String after,
+                                                  WebRequest request){
+        TableVersion version = roomRepository.findTableVersion();
+        if (ConditionalResponses.isNotModified(request, version)) {
+            return null;
+        }
+
+        if (SliceResponses.isPaged(page, size, after)) {
+            Pageable pageable = SliceResponses.pageable(page, size, after, "roomName");
+            Slice<Room> slice = after == null
+                    ? roomRepository.findAllAtVersion(version.getVersion(), pageable)
+                    : roomRepository.findByRoomNameGreaterThan(after, pageable);
+            return SliceResponses.of(slice, Room::getRoomName, after != null);
+        }
+
         List<Room> rooms = new ArrayList<>();
 
-        roomRepository.findAll().forEach(rooms::add);
+        roomRepository.findAllAtVersion(version.getVersion()).forEach(rooms::add);
 
         if (rooms.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -41,15 +70,17 @@ public class RoomController {
     }
 
     @GetMapping("/rooms/{roomName}")
+    @Cacheable(cacheNames = CacheConfiguration.ROOM_BY_NAME, key = "#roomName", unless = "!#result.statusCode.is2xxSuccessful()")
     public ResponseEntity<Room> getRoomByRoomName(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
+        Optional<Room> room = roomRepository.findById(roomName);
         if (!room.isPresent()){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(room.get(), HttpStatus.OK);
+        return ConditionalResponses.ok(room.get(), room.get().getLastModified());
     }
 
     @PostMapping("/room")
+    @CacheEvict(cacheNames = CacheConfiguration.ROOM_BY_NAME, key = "#room.roomName")
     public ResponseEntity<Room> createRoom(@RequestBody Room room){
         Room tmp = new Room(room.getRoomName());
         roomRepository.save(tmp);
@@ -57,18 +88,21 @@ public class RoomController {
     }
 
     @DeleteMapping("/rooms/{roomName}")
+    @CacheEvict(cacheNames = CacheConfiguration.ROOM_BY_NAME, key = "#roomName")
     public ResponseEntity<HttpStatus> deleteRoom(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
-        if (! room.isPresent()){
+        if (roomRepository.removeByRoomName(roomName) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        roomRepository.deleteByRoomName(roomName);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/rooms")
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfiguration.ROOM_BY_NAME, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfiguration.APPOINTMENT_BY_ID, allEntries = true)
+    })
     public ResponseEntity<HttpStatus> deleteAllRooms(){
-        roomRepository.deleteAll();
+        bulkDeletionService.deleteAllRooms();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
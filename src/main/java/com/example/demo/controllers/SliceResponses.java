@@ -0,0 +1,61 @@
+package com.example.demo.controllers;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Shared plumbing for the paginated list endpoints. A client either pages with
+ * {@code page}/{@code size} or walks the table with a keyset cursor
+ * ({@code after=<last key>}); in both cases the next request is advertised in a
+ * {@code Link: <...>; rel="next"} header and no count query is issued.
+ */
+final class SliceResponses {
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private SliceResponses() {
+    }
+
+    static boolean isPaged(Integer page, Integer size, Object after) {
+        return page != null || size != null || after != null;
+    }
+
+    static Pageable pageable(Integer page, Integer size, Object after, String key) {
+        // keyset requests always read the first page after the cursor
+        int number = after != null || page == null ? 0 : Math.max(page, 0);
+        int limit = size == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return PageRequest.of(number, limit, Sort.by(key));
+    }
+
+    static <T> ResponseEntity<List<T>> of(Slice<T> slice, Function<T, ?> cursor, boolean keyset) {
+        if (!slice.hasContent()) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (slice.hasNext()) {
+            UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("size", slice.getSize());
+            if (keyset) {
+                List<T> content = slice.getContent();
+                next.replaceQueryParam("after", cursor.apply(content.get(content.size() - 1)));
+            } else {
+                next.replaceQueryParam("page", slice.getNumber() + 1);
+            }
+            headers.add(HttpHeaders.LINK, "<" + next.build().toUriString() + ">; rel=\"next\"");
+        }
+
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.entities.Appointment;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Read-only view of an appointment built directly by a JPQL constructor
+ * expression: participants are referenced by key, nothing is managed by the
+ * persistence context.
+ */
+public class AppointmentSummary {
+
+    private final long id;
+    private final String roomName;
+    private final Long doctorId;
+    private final Long patientId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public AppointmentSummary(long id, String roomName, Long doctorId, Long patientId,
+                              LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.id = id;
+        this.roomName = roomName;
+        this.doctorId = doctorId;
+        this.patientId = patientId;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public static AppointmentSummary of(Appointment appointment){
+        // reading the id of an uninitialized proxy does not load it
+        return new AppointmentSummary(appointment.getId(),
+                appointment.getRoom() == null ? null : appointment.getRoom().getRoomName(),
+                appointment.getDoctor() == null ? null : appointment.getDoctor().getId(),
+                appointment.getPatient() == null ? null : appointment.getPatient().getId(),
+                appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    public long getId(){
+        return this.id;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public Long getDoctorId(){
+        return this.doctorId;
+    }
+
+    public Long getPatientId(){
+        return this.patientId;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * A maximal free window of a room, half-open like appointments: a booking may
+ * start at {@code startsAt} and must finish by {@code finishesAt}.
+ */
+public class FreeSlot {
+
+    private final String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public FreeSlot(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDateTime getStartsAt(){
+        return this.startsAt;
+    }
+
+    public LocalDateTime getFinishesAt(){
+        return this.finishesAt;
+    }
+}
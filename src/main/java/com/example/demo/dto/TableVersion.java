@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+
+/**
+ * Write count and latest write of the tables behind a list endpoint, summed
+ * over their {@link com.example.demo.entities.ChangeCounter}s with a single
+ * query. Every committed write raises the count, so it tags the current
+ * content of the list without reading any of its rows.
+ */
+public class TableVersion {
+
+    private final long version;
+    private final Instant lastModified;
+
+    public TableVersion(Long version, Instant lastModified){
+        this.version = version == null ? 0 : version;
+        this.lastModified = lastModified;
+    }
+
+    public long getVersion(){
+        return this.version;
+    }
+
+    public Instant getLastModified(){
+        return this.lastModified;
+    }
+
+    // -1 leaves If-Modified-Since unchecked
+    public long getLastModifiedMillis(){
+        return lastModified == null ? -1 : lastModified.toEpochMilli();
+    }
+
+    public String getETag(){
+        return "\"" + version + "\"";
+    }
+}
@@ -1,30 +1,48 @@
 package com.example.demo.entities;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.*;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@NamedEntityGraph(name = "Appointment.participants", attributeNodes = {
+        @NamedAttributeNode("patient"),
+        @NamedAttributeNode("doctor"),
+        @NamedAttributeNode("room")
+})
+@Table(indexes = {
+        @Index(name = "idx_appointment_room_window", columnList = "room_id, startsAt, finishesAt"),
+        @Index(name = "idx_appointment_doctor_window", columnList = "doctor_id, startsAt, finishesAt"),
+        @Index(name = "idx_appointment_patient_window", columnList = "patient_id, startsAt, finishesAt")
+})
 public class Appointment {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="appointment_seq")
+    @GenericGenerator(name="appointment_seq", strategy="com.example.demo.entities.PooledLoSequenceGenerator",
+            parameters=@Parameter(name="sequence_name", value="appointment_seq"))
     private long id;
 
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JoinColumn(name = "patient_id", referencedColumnName = "id")
     private Patient patient;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JoinColumn(name = "doctor_id", referencedColumnName = "id")
     private Doctor doctor;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JoinColumn(name = "room_id", referencedColumnName = "roomName")
     private Room room;
 
@@ -34,6 +52,10 @@ public class Appointment {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
     private LocalDateTime finishesAt;
 
+    // drives the detail response's Last-Modified and ETag; sent in headers, not in the body
+    @JsonIgnore
+    private Instant lastModified;
+
     public Appointment(){
         super();
     }
@@ -88,27 +110,65 @@ public class Appointment {
     public void setRoom(Room room){
         this.room = room;
     }
+
+    public Instant getLastModified(){
+        return this.lastModified;
+    }
+
+    // microseconds: what a datetime(6) column (MySQL8Dialect) or an H2 timestamp stores,
+    // so the stored and in-memory values agree
+    @PrePersist
+    @PreUpdate
+    void touch(){
+        this.lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
     
+    /**
+     * True when both appointments share a room or a stored participant and
+     * their half-open {@code [startsAt, finishesAt)} windows intersect: one
+     * finishing exactly when the other starts does not overlap. An appointment
+     * without dates, or finishing before it starts, occupies no time.
+     */
     public boolean overlaps( Appointment appointment){
-        /// True when:
-        // Case 1: A.starts == B.starts
-        // Case 2: A.finishes == B.finishes 
-        // Case 3: A.starts < B.finishes && B.finishes < A.finishes
-        // Case 4: B.starts < A.starts && A.finishes < B.finishes
-        if (appointment.getRoom().getRoomName().equals(this.getRoom().getRoomName())){ 
-            if (this.getStartsAt().equals(appointment.getStartsAt()) || 
-                    appointment.getFinishesAt().equals(this.getFinishesAt())){
-                return true;
-                    }
-            if (appointment.getFinishesAt().isAfter(this.getStartsAt()) && appointment.getFinishesAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
-            if ( appointment.getStartsAt().isAfter(this.getStartsAt()) && appointment.getStartsAt().isBefore(this.getFinishesAt())){
-                return true;
-            }
+        // read through the getters: either side may be a lazy proxy
+        return overlaps(getStartsAt(), getFinishesAt(), appointment.getStartsAt(), appointment.getFinishesAt())
+                && sharesRoomOrParticipant(appointment);
+    }
+
+    /**
+     * The half-open interval test: covers every arrangement, containment
+     * included, with two comparisons once both windows are known to be
+     * non-empty.
+     */
+    public static boolean overlaps(LocalDateTime startsAtA, LocalDateTime finishesAtA,
+                                   LocalDateTime startsAtB, LocalDateTime finishesAtB){
+        return isWindow(startsAtA, finishesAtA) && isWindow(startsAtB, finishesAtB)
+                && startsAtA.isBefore(finishesAtB) && startsAtB.isBefore(finishesAtA);
+    }
+
+    private static boolean isWindow(LocalDateTime startsAt, LocalDateTime finishesAt){
+        return startsAt != null && finishesAt != null && startsAt.isBefore(finishesAt);
+    }
+
+    private boolean sharesRoomOrParticipant(Appointment appointment){
+        // participants only count once stored: two new ones are never the same person
+        // the room name is the room's key; batches share one instance per room
+        Room room = getRoom();
+        Room otherRoom = appointment.getRoom();
+        if (room != null && otherRoom != null
+                && (room == otherRoom || room.getRoomName().equals(otherRoom.getRoomName()))){
+            return true;
+        }
+        Doctor doctor = getDoctor();
+        Doctor otherDoctor = appointment.getDoctor();
+        if (doctor != null && otherDoctor != null
+                && doctor.getId() > 0 && doctor.getId() == otherDoctor.getId()){
+            return true;
         }
-        
-        return false;
+        Patient patient = getPatient();
+        Patient otherPatient = appointment.getPatient();
+        return patient != null && otherPatient != null
+                && patient.getId() > 0 && patient.getId() == otherPatient.getId();
     }
 
 }
@@ -0,0 +1,106 @@
+package com.example.demo.entities;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+/**
+ * Counts the transactions that wrote to a listed table, so a list endpoint
+ * can tag its content without reading any of its rows. Each table has
+ * {@link #SHARDS} rows and a transaction raises one of them, picked at
+ * random (see {@link com.example.demo.config.ChangeCounting}): concurrent
+ * writers rarely wait on the same row lock, and the table's count is the sum
+ * of its rows. The count is raised in the writing transaction itself, so
+ * every node sees it move exactly when the write becomes visible.
+ */
+@Entity
+@IdClass(ChangeCounter.Key.class)
+@Table(name = "change_counter_shards")
+public class ChangeCounter {
+
+    public static final String APPOINTMENTS = "appointment";
+    public static final String DOCTORS = "doctors";
+    public static final String PATIENTS = "patient";
+    public static final String ROOMS = "room";
+
+    public static final List<String> TABLES =
+            Collections.unmodifiableList(Arrays.asList(APPOINTMENTS, DOCTORS, PATIENTS, ROOMS));
+
+    public static final int SHARDS = 16;
+
+    @Id
+    private String tableName;
+
+    @Id
+    private int shard;
+
+    private long changes;
+
+    private Instant lastChanged;
+
+    public ChangeCounter(){
+        super();
+    }
+
+    public ChangeCounter(String tableName, int shard){
+        super();
+        this.tableName = tableName;
+        this.shard = shard;
+        this.lastChanged = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    public String getTableName(){
+        return this.tableName;
+    }
+
+    public int getShard(){
+        return this.shard;
+    }
+
+    public long getChanges(){
+        return this.changes;
+    }
+
+    public Instant getLastChanged(){
+        return this.lastChanged;
+    }
+
+    public static class Key implements Serializable {
+
+        private String tableName;
+
+        private int shard;
+
+        public Key(){
+            super();
+        }
+
+        public Key(String tableName, int shard){
+            super();
+            this.tableName = tableName;
+            this.shard = shard;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return shard == key.shard && Objects.equals(tableName, key.tableName);
+        }
+
+        @Override
+        public int hashCode(){
+            return Objects.hash(tableName, shard);
+        }
+    }
+}
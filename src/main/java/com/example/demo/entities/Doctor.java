@@ -2,12 +2,22 @@ package com.example.demo.entities;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+// a few hundred rows referenced by every appointment: kept in the second-level cache
 @Entity
 @Table(name="doctors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "doctors")
 public class Doctor extends Person {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="doctor_seq")
+    @GenericGenerator(name="doctor_seq", strategy="com.example.demo.entities.PooledLoSequenceGenerator",
+            parameters=@Parameter(name="sequence_name", value="doctor_seq"))
     private long id;
  
     public Doctor() {
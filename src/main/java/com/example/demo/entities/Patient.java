@@ -1,15 +1,25 @@
 package com.example.demo.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "patients")
 public class Patient extends Person{
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="patient_seq")
+    @GenericGenerator(name="patient_seq", strategy="com.example.demo.entities.PooledLoSequenceGenerator",
+            parameters=@Parameter(name="sequence_name", value="patient_seq"))
     private long id;
 
     public Patient(){
@@ -1,6 +1,13 @@
 package com.example.demo.entities;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
 import javax.persistence.MappedSuperclass;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @MappedSuperclass
 public class Person {
@@ -8,6 +15,9 @@ public class Person {
     private String lastName;
     private int age;
     private String email;
+
+    @JsonIgnore
+    private Instant lastModified;
     
     public Person(){
         super();
@@ -48,4 +58,14 @@ public class Person {
     public void setEmail(String email){
         this.email = email; 
     }
+
+    public Instant getLastModified(){
+        return this.lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch(){
+        this.lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
 }
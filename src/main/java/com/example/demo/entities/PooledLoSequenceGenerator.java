@@ -0,0 +1,38 @@
+package com.example.demo.entities;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence generator handing out ids in blocks with the pooled-lo optimizer:
+ * one sequence (or, on MySQL, single-row table) round trip per block of
+ * inserts, so inserts can be JDBC batched and writers of different entities
+ * never contend on a shared row.
+ * <p>
+ * The block size defaults to {@value #DEFAULT_ALLOCATION_SIZE} and can be set
+ * for every entity with {@code spring.jpa.properties.hospital.id.allocation_size},
+ * or per entity with an {@code increment_size} generator parameter.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "hospital.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        if (!params.containsKey(INCREMENT_PARAM)) {
+            int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING,
+                    serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_ALLOCATION_SIZE);
+            params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        }
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -1,14 +1,32 @@
 package com.example.demo.entities;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// few rows, read on every booking: resolved from the second-level cache. Not READ_ONLY,
+// which rejects a room created and read back in the same booking transaction.
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "rooms")
 public class Room {
 
     @Id
     private String roomName;
 
+    @JsonIgnore
+    private Instant lastModified;
+
     public Room(){
         super();
     }
@@ -23,4 +41,14 @@ public class Room {
         return this.roomName;
     }
 
+    public Instant getLastModified(){
+        return this.lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch(){
+        this.lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
 }
@@ -0,0 +1,80 @@
+package com.example.demo.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+/**
+ * One row per bookable resource ({@code room:Dermatology}, {@code doctor:7},
+ * {@code patient:12}) whose version is bumped in the same transaction as every
+ * appointment insert for it, so two nodes booking the same resource
+ * concurrently cannot both commit.
+ */
+@Entity
+@Table(name = "schedule_reservations")
+public class ScheduleReservation {
+
+    @Id
+    private String resource;
+
+    @Version
+    private Long version;
+
+    public ScheduleReservation(){
+        super();
+    }
+
+    public ScheduleReservation(String resource){
+        super();
+        this.resource = resource;
+    }
+
+    public static String roomKey(String roomName){
+        return "room:" + roomName;
+    }
+
+    public static String doctorKey(long doctorId){
+        return "doctor:" + doctorId;
+    }
+
+    public static String patientKey(long patientId){
+        return "patient:" + patientId;
+    }
+
+    /**
+     * The resources an appointment occupies: its room, and its doctor and
+     * patient once they are stored. A participant created by the booking
+     * itself cannot be busy elsewhere yet.
+     */
+    public static List<String> resourcesOf(String roomName, Long doctorId, Long patientId){
+        List<String> resources = new ArrayList<>(3);
+        if (roomName != null) {
+            resources.add(roomKey(roomName));
+        }
+        if (doctorId != null && doctorId > 0) {
+            resources.add(doctorKey(doctorId));
+        }
+        if (patientId != null && patientId > 0) {
+            resources.add(patientKey(patientId));
+        }
+        return resources;
+    }
+
+    public static List<String> resourcesOf(Appointment appointment){
+        return resourcesOf(appointment.getRoom() == null ? null : appointment.getRoom().getRoomName(),
+                appointment.getDoctor() == null ? null : appointment.getDoctor().getId(),
+                appointment.getPatient() == null ? null : appointment.getPatient().getId());
+    }
+
+    public String getResource(){
+        return this.resource;
+    }
+
+    public Long getVersion(){
+        return this.version;
+    }
+}
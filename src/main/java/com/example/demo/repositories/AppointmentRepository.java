@@ -1,14 +1,175 @@
 
 package com.example.demo.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.TableVersion;
 import com.example.demo.entities.Appointment;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+// Read methods load patient, doctor and room in the same select through the
+// Appointment.participants entity graph instead of one extra select per row.
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    @EntityGraph("Appointment.participants")
     List<Appointment> findAll();
+    @EntityGraph("Appointment.participants")
+    Optional<Appointment> findById(Long id);
     Appointment save(Appointment appointment);
     void delete(Appointment appointment);
+    @EntityGraph("Appointment.participants")
+    Slice<Appointment> findAllBy(Pageable pageable);
+    @EntityGraph("Appointment.participants")
+    Slice<Appointment> findByIdGreaterThan(long id, Pageable pageable);
+
+    // Half-open [startsAt, finishesAt) intersection, answered by the
+    // (room_id, startsAt, finishesAt) index declared on Appointment.
+    @Query("select case when count(a) > 0 then true else false end from Appointment a " +
+            "where a.room.roomName = :roomName and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    boolean existsOverlapping(@Param("roomName") String roomName,
+                              @Param("startsAt") LocalDateTime startsAt,
+                              @Param("finishesAt") LocalDateTime finishesAt);
+
+    // The same intersection for a doctor and for a patient, each answered by its
+    // own (participant_id, startsAt, finishesAt) index and stopped at the first
+    // matching row. An "or" over both columns would leave the database a merge
+    // of two index ranges, or a scan; a derived exists query would join the
+    // participant table.
+    @Query("select a.id from Appointment a " +
+            "where a.doctor.id = :doctorId and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    List<Long> findIdsOfDoctorOverlapping(@Param("doctorId") long doctorId,
+                                          @Param("startsAt") LocalDateTime startsAt,
+                                          @Param("finishesAt") LocalDateTime finishesAt,
+                                          Pageable pageable);
+
+    @Query("select a.id from Appointment a " +
+            "where a.patient.id = :patientId and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    List<Long> findIdsOfPatientOverlapping(@Param("patientId") long patientId,
+                                           @Param("startsAt") LocalDateTime startsAt,
+                                           @Param("finishesAt") LocalDateTime finishesAt,
+                                           Pageable pageable);
+
+    default boolean existsDoctorOverlapping(long doctorId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return !findIdsOfDoctorOverlapping(doctorId, startsAt, finishesAt, PageRequest.of(0, 1)).isEmpty();
+    }
+
+    default boolean existsPatientOverlapping(long patientId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return !findIdsOfPatientOverlapping(patientId, startsAt, finishesAt, PageRequest.of(0, 1)).isEmpty();
+    }
+
+    // Cursor-backed read for exports: rows are fetched in batches as the stream is
+    // consumed and loaded read-only, so no dirty-checking snapshots are kept.
+    // Must be consumed inside a transaction and closed afterwards.
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @EntityGraph("Appointment.participants")
+    @Query("select a from Appointment a order by a.id")
+    Stream<Appointment> streamAll();
+
+    // Summary projections: participant ids come straight from the foreign key
+    // columns, so no join is made and no entity is hydrated.
+    String SUMMARY = "select new com.example.demo.dto.AppointmentSummary(" +
+            "a.id, a.room.roomName, a.doctor.id, a.patient.id, a.startsAt, a.finishesAt) from Appointment a ";
+
+    @Query(SUMMARY + "order by a.id")
+    List<AppointmentSummary> findAllSummaries();
+
+    @Query(SUMMARY)
+    Slice<AppointmentSummary> findAllSummaries(Pageable pageable);
+
+    // cursor-backed like streamAll, for loading the schedule index without holding the table in a list
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SUMMARY + "order by a.id")
+    Stream<AppointmentSummary> streamAllSummaries();
+
+    @Query(SUMMARY + "where a.id > :id")
+    Slice<AppointmentSummary> findSummariesByIdGreaterThan(@Param("id") long id, Pageable pageable);
+
+    @Query(SUMMARY + "where a.room.roomName = :roomName and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+            "order by a.startsAt")
+    List<AppointmentSummary> findSummariesOverlapping(@Param("roomName") String roomName,
+                                                      @Param("startsAt") LocalDateTime startsAt,
+                                                      @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query(SUMMARY + "where a.id = :id")
+    Optional<AppointmentSummary> findSummaryById(@Param("id") long id);
+
+    // confirms the slots the schedule index reports, which may have been deleted or moved on another node
+    @Query(SUMMARY + "where a.id in :ids")
+    List<AppointmentSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Availability search: one range probe per room on the same index, rows
+    // come back grouped by room and sorted by start.
+    @Query(SUMMARY + "where a.room.roomName in :roomNames and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+            "order by a.room.roomName, a.startsAt")
+    List<AppointmentSummary> findSummariesOverlappingRooms(@Param("roomNames") Collection<String> roomNames,
+                                                           @Param("startsAt") LocalDateTime startsAt,
+                                                           @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query(SUMMARY + "where a.doctor.id = :doctorId and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+            "order by a.startsAt")
+    List<AppointmentSummary> findSummariesOfDoctorOverlapping(@Param("doctorId") long doctorId,
+                                                              @Param("startsAt") LocalDateTime startsAt,
+                                                              @Param("finishesAt") LocalDateTime finishesAt);
+
+    @Query(SUMMARY + "where a.patient.id = :patientId and a.startsAt < :finishesAt and a.finishesAt > :startsAt " +
+            "order by a.startsAt")
+    List<AppointmentSummary> findSummariesOfPatientOverlapping(@Param("patientId") long patientId,
+                                                               @Param("startsAt") LocalDateTime startsAt,
+                                                               @Param("finishesAt") LocalDateTime finishesAt);
+
+    // Bulk deletes by id range: a single statement each, nothing is loaded.
+    @Query("select min(a.id) from Appointment a")
+    Long findMinId();
+
+    @Query("select max(a.id) from Appointment a")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from Appointment a where a.id between :from and :to")
+    int deleteByIdBetween(@Param("from") long from, @Param("to") long to);
+
+    @Modifying
+    @Query("delete from Appointment a where a.room is not null and a.id between :from and :to")
+    int deleteWithRoomByIdBetween(@Param("from") long from, @Param("to") long to);
+
+    @Modifying
+    @Query("delete from Appointment a where a.doctor.id between :from and :to")
+    int deleteByDoctorIdBetween(@Param("from") long from, @Param("to") long to);
+
+    @Modifying
+    @Query("delete from Appointment a where a.patient.id between :from and :to")
+    int deleteByPatientIdBetween(@Param("from") long from, @Param("to") long to);
+
+    // single statement, the affected row count tells whether the row existed
+    @Modifying
+    @Transactional
+    @Query("delete from Appointment a where a.id = :id")
+    int removeById(@Param("id") long id);
+
+    // appointments are listed with their room, doctor and patient: a write to any of them changes the list
+    @Query("select new com.example.demo.dto.TableVersion(sum(c.changes), max(c.lastChanged)) " +
+            "from ChangeCounter c where c.tableName in ('appointment', 'doctors', 'patient', 'room')")
+    TableVersion findTableVersion();
 }
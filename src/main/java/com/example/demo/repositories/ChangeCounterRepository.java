@@ -0,0 +1,8 @@
+package com.example.demo.repositories;
+
+import com.example.demo.entities.ChangeCounter;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ChangeCounterRepository extends JpaRepository<ChangeCounter, ChangeCounter.Key> {
+}
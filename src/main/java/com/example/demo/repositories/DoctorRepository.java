@@ -2,12 +2,54 @@ package com.example.demo.repositories;
 
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
+import com.example.demo.dto.TableVersion;
 import com.example.demo.entities.Doctor;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findAll();
     Doctor save(Doctor doc);
     void delete(Doctor doc);
+    Slice<Doctor> findByIdGreaterThan(long id, Pageable pageable);
+
+    @Query("select min(d.id) from Doctor d")
+    Long findMinId();
+
+    @Query("select max(d.id) from Doctor d")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from Doctor d where d.id between :from and :to")
+    int deleteByIdBetween(@Param("from") long from, @Param("to") long to);
+
+    // single statement, the affected row count tells whether the row existed
+    @Modifying
+    @Transactional
+    @Query("delete from Doctor d where d.id = :id")
+    int removeById(@Param("id") long id);
+
+    // Listings are read far more often than the table changes: served from the query cache.
+    // Hibernate only invalidates it for writes made on this node, so the list is cached under
+    // the table version (see findTableVersion): a write committed on another node changes the key.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select d from Doctor d where :version >= 0L")
+    List<Doctor> findAllAtVersion(@Param("version") long version);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select d from Doctor d where :version >= 0L")
+    Slice<Doctor> findAllAtVersion(@Param("version") long version, Pageable pageable);
+
+    @Query("select new com.example.demo.dto.TableVersion(sum(c.changes), max(c.lastChanged)) " +
+            "from ChangeCounter c where c.tableName = 'doctors'")
+    TableVersion findTableVersion();
 }
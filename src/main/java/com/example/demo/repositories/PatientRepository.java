@@ -3,12 +3,41 @@ package com.example.demo.repositories;
 
 import java.util.List;
 
+import com.example.demo.dto.TableVersion;
 import com.example.demo.entities.Patient;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     List<Patient> findAll();
     Patient save(Patient doc);
     void delete(Patient doc);
+    Slice<Patient> findAllBy(Pageable pageable);
+    Slice<Patient> findByIdGreaterThan(long id, Pageable pageable);
+
+    @Query("select min(p.id) from Patient p")
+    Long findMinId();
+
+    @Query("select max(p.id) from Patient p")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from Patient p where p.id between :from and :to")
+    int deleteByIdBetween(@Param("from") long from, @Param("to") long to);
+
+    // single statement, the affected row count tells whether the row existed
+    @Modifying
+    @Transactional
+    @Query("delete from Patient p where p.id = :id")
+    int removeById(@Param("id") long id);
+
+    @Query("select new com.example.demo.dto.TableVersion(sum(c.changes), max(c.lastChanged)) " +
+            "from ChangeCounter c where c.tableName = 'patient'")
+    TableVersion findTableVersion();
 }
@@ -2,16 +2,45 @@
 package com.example.demo.repositories;
 
 import java.util.List;
-import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
+import com.example.demo.dto.TableVersion;
 import com.example.demo.entities.Room;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, String> {
     List<Room> findAll();
-    Optional<Room> findByRoomName(String roomName);
     Room save(Room room);
     void delete(Room room);
-    void deleteByRoomName(String roomName);
+    Slice<Room> findByRoomNameGreaterThan(String roomName, Pageable pageable);
+
+    // single statement, the affected row count tells whether the row existed
+    @Modifying
+    @Transactional
+    @Query("delete from Room r where r.roomName = :roomName")
+    int removeByRoomName(@Param("roomName") String roomName);
+
+    // Listings are read far more often than the table changes: served from the query cache.
+    // Hibernate only invalidates it for writes made on this node, so the list is cached under
+    // the table version (see findTableVersion): a write committed on another node changes the key.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select r from Room r where :version >= 0L")
+    List<Room> findAllAtVersion(@Param("version") long version);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select r from Room r where :version >= 0L")
+    Slice<Room> findAllAtVersion(@Param("version") long version, Pageable pageable);
+
+    @Query("select new com.example.demo.dto.TableVersion(sum(c.changes), max(c.lastChanged)) " +
+            "from ChangeCounter c where c.tableName = 'room'")
+    TableVersion findTableVersion();
 }
@@ -0,0 +1,16 @@
+package com.example.demo.repositories;
+
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import com.example.demo.entities.ScheduleReservation;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+public interface ScheduleReservationRepository extends JpaRepository<ScheduleReservation, String> {
+    // the version is incremented at commit whether or not the row was modified
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<ScheduleReservation> findByResource(String resource);
+}
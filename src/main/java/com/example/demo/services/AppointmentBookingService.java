@@ -0,0 +1,462 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.entities.ScheduleReservation;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.repositories.ScheduleReservationRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Books appointments without double-booking a room, a doctor or a patient.
+ * <p>
+ * An appointment occupies its room and, once they are stored, its doctor and
+ * its patient (see {@link ScheduleReservation#resourcesOf}). Within one node,
+ * the overlap checks and the insert run under locks striped by resource, taken
+ * in stripe order, so bookings sharing a resource are serialized while the
+ * others proceed in parallel on every request thread.
+ * <p>
+ * Across nodes sharing the database, every booking also force-increments the
+ * {@link ScheduleReservation} version of each of its resources in the same
+ * transaction as the insert. Of two nodes booking the same resource at once
+ * only one can commit; the other is rolled back and retried, re-running the
+ * overlap checks against the now committed appointment.
+ * <p>
+ * {@link #bookAll} books a whole batch atomically: overlaps inside the batch
+ * are found by sorting each resource's slots, stored ones with a single range
+ * query per resource, and the inserts go out as JDBC batches on commit.
+ * <p>
+ * Appointments no longer cascade to their participants. A patient or doctor
+ * sent with an id is referenced through a proxy without being read; one sent
+ * without an id is created. Rooms are looked up by name and created on first
+ * use.
+ */
+@Service
+public class AppointmentBookingService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] stripes = new Lock[LOCK_STRIPES];
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    ScheduleReservationRepository scheduleReservationRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    AppointmentScheduleIndex appointmentScheduleIndex;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    BookingMetrics bookingMetrics;
+
+    @Value("${booking.max-attempts:3}")
+    int maxAttempts;
+
+    private TransactionTemplate transactionTemplate;
+
+    public AppointmentBookingService() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BookingResult book(Appointment appointment) {
+        // most conflicting attempts are rejected on the index hit, confirmed by primary key,
+        // before queueing on the room lock
+        if (overlapsIndexed(appointment)) {
+            return BookingResult.OVERLAP;
+        }
+
+        SortedSet<String> resources = new TreeSet<>(ScheduleReservation.resourcesOf(appointment));
+        List<Lock> locks = lock(resources);
+        try {
+            // a booking for the same resources may have landed while we were waiting for the locks
+            if (overlapsIndexed(appointment)) {
+                return BookingResult.OVERLAP;
+            }
+            BookingResult result = bookWithRetry(Collections.singletonList(appointment),
+                    createdReservation -> bookInTransaction(appointment, resources, createdReservation));
+            if (result == BookingResult.BOOKED) {
+                appointmentScheduleIndex.add(appointment);
+            }
+            return result;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    public BookingResult bookAll(List<Appointment> appointments) {
+        Timer.Sample index = bookingMetrics.start();
+        BatchSchedules schedules = new BatchSchedules(appointments);
+        boolean overlaps = schedules.overlapsWithin() || appointments.stream().anyMatch(appointmentScheduleIndex::overlapsStored);
+        bookingMetrics.stop(index, BookingMetrics.INDEX);
+        if (overlaps) {
+            return BookingResult.OVERLAP;
+        }
+
+        SortedSet<String> resources = schedules.resources();
+        List<Lock> locks = lock(resources);
+        try {
+            BookingResult result = bookWithRetry(appointments,
+                    createdReservation -> bookAllInTransaction(appointments, schedules, resources, createdReservation));
+            if (result == BookingResult.BOOKED) {
+                appointments.forEach(appointmentScheduleIndex::add);
+            }
+            return result;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    private BookingResult bookWithRetry(List<Appointment> appointments, Function<AtomicBoolean, BookingResult> booking) {
+        List<UnsavedAppointment> unsaved = new ArrayList<>(appointments.size());
+        appointments.forEach(appointment -> unsaved.add(new UnsavedAppointment(appointment)));
+
+        for (int attempt = 1; ; attempt++) {
+            AtomicBoolean createdReservation = new AtomicBoolean();
+            Timer.Sample transaction = bookingMetrics.start();
+            try {
+                return transactionTemplate.execute(status -> {
+                    BookingResult result = booking.apply(createdReservation);
+                    if (result != BookingResult.BOOKED) {
+                        // the reservation versions taken for a rejected booking must not fail concurrent ones
+                        status.setRollbackOnly();
+                    }
+                    return result;
+                });
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                // only a lost race on the reservation row is worth retrying
+                boolean lostRace = e instanceof OptimisticLockingFailureException || createdReservation.get();
+                if (!lostRace) {
+                    throw e;
+                }
+                bookingMetrics.retried();
+                // the rollback does not undo ids and references already assigned in memory
+                for (int i = 0; i < appointments.size(); i++) {
+                    unsaved.get(i).restore(appointments.get(i));
+                }
+                if (attempt >= maxAttempts) {
+                    return BookingResult.CONTENDED;
+                }
+            } finally {
+                // up to the commit, where the inserts are flushed
+                bookingMetrics.stop(transaction, BookingMetrics.TRANSACTION);
+            }
+        }
+    }
+
+    private BookingResult bookInTransaction(Appointment appointment, SortedSet<String> resources,
+                                            AtomicBoolean createdReservation) {
+        Timer.Sample overlap = bookingMetrics.start();
+        boolean overlaps = overlapsStored(appointment, resources, createdReservation);
+        bookingMetrics.stop(overlap, BookingMetrics.OVERLAP);
+        if (overlaps) {
+            return BookingResult.OVERLAP;
+        }
+
+        Timer.Sample save = bookingMetrics.start();
+        appointment.setRoom(resolveRoom(appointment.getRoom()));
+        resolveParticipants(appointment);
+        appointmentRepository.save(appointment);
+        bookingMetrics.stop(save, BookingMetrics.SAVE);
+        return BookingResult.BOOKED;
+    }
+
+    private boolean overlapsStored(Appointment appointment, SortedSet<String> resources, AtomicBoolean createdReservation) {
+        resources.forEach(resource -> reserve(resource, createdReservation));
+
+        // the database has the final word: index range probes on the room and the stored participants
+        if (appointmentRepository.existsOverlapping(appointment.getRoom().getRoomName(),
+                appointment.getStartsAt(), appointment.getFinishesAt())) {
+            return true;
+        }
+        long doctorId = appointment.getDoctor().getId();
+        long patientId = appointment.getPatient().getId();
+        return doctorId > 0 && appointmentRepository.existsDoctorOverlapping(doctorId,
+                appointment.getStartsAt(), appointment.getFinishesAt())
+                || patientId > 0 && appointmentRepository.existsPatientOverlapping(patientId,
+                appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    private BookingResult bookAllInTransaction(List<Appointment> appointments, BatchSchedules schedules,
+                                               SortedSet<String> resources, AtomicBoolean createdReservation) {
+        Timer.Sample overlap = bookingMetrics.start();
+        boolean overlaps = overlapsStored(schedules, resources, createdReservation);
+        bookingMetrics.stop(overlap, BookingMetrics.OVERLAP);
+        if (overlaps) {
+            return BookingResult.OVERLAP;
+        }
+
+        Timer.Sample save = bookingMetrics.start();
+        for (List<Appointment> schedule : schedules.byRoom.values()) {
+            // every slot of a room shares one instance, the stored one when the room already exists
+            Room room = resolveRoom(schedule.get(0).getRoom());
+            schedule.forEach(appointment -> appointment.setRoom(room));
+        }
+        appointments.forEach(this::resolveParticipants);
+        appointmentRepository.saveAll(appointments);
+        bookingMetrics.stop(save, BookingMetrics.SAVE);
+        return BookingResult.BOOKED;
+    }
+
+    private boolean overlapsStored(BatchSchedules schedules, SortedSet<String> resources, AtomicBoolean createdReservation) {
+        resources.forEach(resource -> reserve(resource, createdReservation));
+
+        // slots of a resource never overlap each other here, so the last one finishes latest
+        for (Map.Entry<String, List<Appointment>> entry : schedules.byRoom.entrySet()) {
+            List<Appointment> schedule = entry.getValue();
+            if (overlapsBooked(schedule, appointmentRepository.findSummariesOverlapping(entry.getKey(),
+                    firstStart(schedule), lastFinish(schedule)))) {
+                return true;
+            }
+        }
+        for (Map.Entry<Long, List<Appointment>> entry : schedules.byDoctor.entrySet()) {
+            List<Appointment> schedule = entry.getValue();
+            if (overlapsBooked(schedule, appointmentRepository.findSummariesOfDoctorOverlapping(entry.getKey(),
+                    firstStart(schedule), lastFinish(schedule)))) {
+                return true;
+            }
+        }
+        for (Map.Entry<Long, List<Appointment>> entry : schedules.byPatient.entrySet()) {
+            List<Appointment> schedule = entry.getValue();
+            if (overlapsBooked(schedule, appointmentRepository.findSummariesOfPatientOverlapping(entry.getKey(),
+                    firstStart(schedule), lastFinish(schedule)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reserve(String resource, AtomicBoolean createdReservation) {
+        if (!scheduleReservationRepository.findByResource(resource).isPresent()) {
+            // first booking of this resource: a concurrent first booking fails on the primary key
+            createdReservation.set(true);
+            scheduleReservationRepository.saveAndFlush(new ScheduleReservation(resource));
+            // any later integrity violation is not about the reservation
+            createdReservation.set(false);
+        }
+    }
+
+    private Room resolveRoom(Room room) {
+        // a primary key load, answered from the second-level cache once the room is known
+        return roomRepository.findById(room.getRoomName()).orElseGet(() -> roomRepository.save(room));
+    }
+
+    private void resolveParticipants(Appointment appointment) {
+        Patient patient = appointment.getPatient();
+        appointment.setPatient(patient.getId() > 0
+                ? patientRepository.getReferenceById(patient.getId())
+                : patientRepository.save(patient));
+
+        Doctor doctor = appointment.getDoctor();
+        appointment.setDoctor(doctor.getId() > 0
+                ? doctorRepository.getReferenceById(doctor.getId())
+                : doctorRepository.save(doctor));
+    }
+
+    private static LocalDateTime firstStart(List<Appointment> schedule) {
+        return schedule.get(0).getStartsAt();
+    }
+
+    private static LocalDateTime lastFinish(List<Appointment> schedule) {
+        return schedule.get(schedule.size() - 1).getFinishesAt();
+    }
+
+    private static boolean overlapsWithin(List<Appointment> schedule) {
+        LocalDateTime busyUntil = LocalDateTime.MIN;
+        for (Appointment appointment : schedule) {
+            if (appointment.getStartsAt().isBefore(busyUntil)) {
+                return true;
+            }
+            busyUntil = appointment.getFinishesAt().isAfter(busyUntil) ? appointment.getFinishesAt() : busyUntil;
+        }
+        return false;
+    }
+
+    private static boolean overlapsBooked(List<Appointment> schedule, List<AppointmentSummary> booked) {
+        // both sides are sorted by start: a single merge pass finds any crossing pair
+        int next = 0;
+        LocalDateTime bookedUntil = LocalDateTime.MIN;
+        for (Appointment appointment : schedule) {
+            while (next < booked.size() && booked.get(next).getStartsAt().isBefore(appointment.getFinishesAt())) {
+                LocalDateTime finishesAt = booked.get(next++).getFinishesAt();
+                bookedUntil = finishesAt.isAfter(bookedUntil) ? finishesAt : bookedUntil;
+            }
+            if (bookedUntil.isAfter(appointment.getStartsAt())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Lock> stripesFor(Collection<String> resources) {
+        SortedSet<Integer> indexes = new TreeSet<>();
+        resources.forEach(resource -> indexes.add(stripeIndex(resource)));
+
+        List<Lock> locks = new ArrayList<>(indexes.size());
+        indexes.forEach(index -> locks.add(stripes[index]));
+        return locks;
+    }
+
+    private boolean overlapsIndexed(Appointment appointment) {
+        Timer.Sample index = bookingMetrics.start();
+        boolean overlaps = appointmentScheduleIndex.overlapsStored(appointment);
+        bookingMetrics.stop(index, BookingMetrics.INDEX);
+        return overlaps;
+    }
+
+    // always taken in stripe order, so two bookings sharing resources cannot deadlock
+    private List<Lock> lock(SortedSet<String> resources) {
+        Timer.Sample lock = bookingMetrics.start();
+        List<Lock> locks = stripesFor(resources);
+        locks.forEach(Lock::lock);
+        bookingMetrics.stop(lock, BookingMetrics.LOCK);
+        return locks;
+    }
+
+    private static void unlock(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private int stripeIndex(String resource) {
+        int hash = resource.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    /**
+     * A batch split into per-resource schedules sorted by start. Participants
+     * created by the batch itself are left out: they cannot be busy elsewhere.
+     */
+    private static final class BatchSchedules {
+
+        private final Map<String, List<Appointment>> byRoom;
+        private final Map<Long, List<Appointment>> byDoctor;
+        private final Map<Long, List<Appointment>> byPatient;
+
+        BatchSchedules(List<Appointment> appointments) {
+            // room names compare as the database collation does: "Dentist" and "dentist" are one room
+            this.byRoom = schedulesBy(appointments, appointment -> appointment.getRoom().getRoomName(),
+                    String.CASE_INSENSITIVE_ORDER);
+            this.byDoctor = schedulesBy(appointments, appointment -> storedId(appointment.getDoctor().getId()),
+                    Comparator.naturalOrder());
+            this.byPatient = schedulesBy(appointments, appointment -> storedId(appointment.getPatient().getId()),
+                    Comparator.naturalOrder());
+        }
+
+        boolean overlapsWithin() {
+            return byRoom.values().stream().anyMatch(AppointmentBookingService::overlapsWithin)
+                    || byDoctor.values().stream().anyMatch(AppointmentBookingService::overlapsWithin)
+                    || byPatient.values().stream().anyMatch(AppointmentBookingService::overlapsWithin);
+        }
+
+        SortedSet<String> resources() {
+            SortedSet<String> resources = new TreeSet<>();
+            byRoom.keySet().forEach(roomName -> resources.add(ScheduleReservation.roomKey(roomName)));
+            byDoctor.keySet().forEach(doctorId -> resources.add(ScheduleReservation.doctorKey(doctorId)));
+            byPatient.keySet().forEach(patientId -> resources.add(ScheduleReservation.patientKey(patientId)));
+            return resources;
+        }
+
+        private static Long storedId(long id) {
+            return id > 0 ? id : null;
+        }
+
+        private static <K> Map<K, List<Appointment>> schedulesBy(List<Appointment> appointments,
+                                                                 Function<Appointment, K> key,
+                                                                 Comparator<? super K> order) {
+            Map<K, List<Appointment>> schedules = new TreeMap<>(order);
+            for (Appointment appointment : appointments) {
+                K resource = key.apply(appointment);
+                if (resource != null) {
+                    schedules.computeIfAbsent(resource, ignored -> new ArrayList<>()).add(appointment);
+                }
+            }
+            schedules.values().forEach(schedule -> schedule.sort(Comparator.comparing(Appointment::getStartsAt)));
+            return schedules;
+        }
+    }
+
+    private static final class UnsavedAppointment {
+
+        private final long id;
+        private final Patient patient;
+        private final long patientId;
+        private final Doctor doctor;
+        private final long doctorId;
+        private final Room room;
+
+        UnsavedAppointment(Appointment appointment) {
+            this.id = appointment.getId();
+            this.patient = appointment.getPatient();
+            this.patientId = patient == null ? 0 : patient.getId();
+            this.doctor = appointment.getDoctor();
+            this.doctorId = doctor == null ? 0 : doctor.getId();
+            this.room = appointment.getRoom();
+        }
+
+        void restore(Appointment appointment) {
+            appointment.setId(id);
+            appointment.setPatient(patient);
+            appointment.setDoctor(doctor);
+            appointment.setRoom(room);
+            if (patient != null) {
+                patient.setId(patientId);
+            }
+            if (doctor != null) {
+                doctor.setId(doctorId);
+            }
+        }
+    }
+}
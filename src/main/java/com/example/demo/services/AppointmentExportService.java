@@ -0,0 +1,68 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes every appointment as newline-delimited JSON straight from a database
+ * cursor. The persistence context is cleared after every chunk of written
+ * appointments, so memory stays flat regardless of table size.
+ */
+@Service
+public class AppointmentExportService {
+
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public void writeNdjson(OutputStream out) throws IOException {
+        // ObjectMapper.writeValue would flush the stream after every row
+        ObjectWriter writer = objectMapper.writerFor(Appointment.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        try (Stream<Appointment> appointments = appointmentRepository.streamAll()) {
+            Iterator<Appointment> iterator = appointments.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                Appointment appointment = iterator.next();
+                writer.writeValue(generator, appointment);
+                generator.writeRaw('\n');
+
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                    // participants are shared between rows: drop the whole chunk at once
+                    entityManager.clear();
+                }
+            }
+        }
+        entityManager.clear();
+        generator.close();
+    }
+}
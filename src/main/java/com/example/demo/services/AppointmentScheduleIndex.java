@@ -0,0 +1,261 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.ScheduleReservation;
+import com.example.demo.repositories.AppointmentRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * In-memory mirror of the appointment table that answers
+ * {@link Appointment#overlaps}-style questions from memory.
+ * <p>
+ * Every appointment is scheduled under each resource it occupies (see
+ * {@link ScheduleReservation#resourcesOf}): its room, its doctor and its
+ * patient. Each resource keeps its slots sorted by start time together with
+ * the longest slot duration seen so far, so a lookup only has to visit the
+ * slots starting in {@code [startsAt - longest, finishesAt)}: O(log n + k) per
+ * resource checked.
+ * The database stays the source of truth; this index only exists to reject
+ * conflicting bookings quickly. It only sees the writes made on this node, so
+ * a hit is a hint: {@link #overlapsStored} confirms it by reading the
+ * conflicting rows back, and forgets the slots another node has deleted or
+ * moved since.
+ */
+@Component
+public class AppointmentScheduleIndex {
+
+    private final ConcurrentMap<String, ResourceSchedule> schedules = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Slot> slotsById = new ConcurrentHashMap<>();
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        // the summary projection avoids hydrating every appointment and its participants
+        try (Stream<AppointmentSummary> summaries = appointmentRepository.streamAllSummaries()) {
+            summaries.forEach(this::add);
+        }
+    }
+
+    public boolean overlaps(Appointment appointment) {
+        if (!isIndexable(appointment)) {
+            return false;
+        }
+        for (String resource : ScheduleReservation.resourcesOf(appointment)) {
+            ResourceSchedule schedule = schedules.get(resource);
+            if (schedule != null && schedule.overlaps(appointment.getStartsAt(), appointment.getFinishesAt())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@link #overlaps}, confirmed against the database: the indexed slots in
+     * the way are read back by primary key, and only a stored appointment
+     * still in the way counts. Slots whose row is gone are dropped, moved
+     * ones are rescheduled.
+     */
+    public boolean overlapsStored(Appointment appointment) {
+        if (!isIndexable(appointment)) {
+            return false;
+        }
+        Set<Long> ids = new HashSet<>();
+        List<String> resources = ScheduleReservation.resourcesOf(appointment);
+        for (String resource : resources) {
+            ResourceSchedule schedule = schedules.get(resource);
+            if (schedule != null) {
+                schedule.collectOverlapping(appointment.getStartsAt(), appointment.getFinishesAt(), ids);
+            }
+        }
+        if (ids.isEmpty()) {
+            return false;
+        }
+
+        boolean overlaps = false;
+        Set<Long> gone = new HashSet<>(ids);
+        for (AppointmentSummary stored : appointmentRepository.findSummariesByIdIn(ids)) {
+            gone.remove(stored.getId());
+            if (overlaps(stored, resources, appointment.getStartsAt(), appointment.getFinishesAt())) {
+                overlaps = true;
+            } else {
+                // moved by another node
+                add(stored);
+            }
+        }
+        // deleted by another node
+        gone.forEach(this::remove);
+        return overlaps;
+    }
+
+    public void add(Appointment appointment) {
+        if (!isIndexable(appointment)) {
+            return;
+        }
+        add(appointment.getId(), ScheduleReservation.resourcesOf(appointment),
+                appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    public void add(AppointmentSummary summary) {
+        if (Objects.isNull(summary.getRoomName()) ||
+                Objects.isNull(summary.getStartsAt()) ||
+                Objects.isNull(summary.getFinishesAt())) {
+            return;
+        }
+        add(summary.getId(),
+                ScheduleReservation.resourcesOf(summary.getRoomName(), summary.getDoctorId(), summary.getPatientId()),
+                summary.getStartsAt(), summary.getFinishesAt());
+    }
+
+    private void add(long id, List<String> resources, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        // the slot keeps the shared schedules, not its own copies of their keys
+        ResourceSchedule[] slotSchedules = new ResourceSchedule[resources.size()];
+        for (int i = 0; i < slotSchedules.length; i++) {
+            slotSchedules[i] = schedules.computeIfAbsent(resources.get(i), key -> new ResourceSchedule());
+        }
+        Slot slot = new Slot(id, slotSchedules, startsAt, finishesAt);
+        Slot previous = slotsById.put(id, slot);
+        if (previous != null) {
+            unschedule(previous);
+        }
+        for (ResourceSchedule schedule : slotSchedules) {
+            schedule.add(slot);
+        }
+    }
+
+    public void remove(long id) {
+        Slot slot = slotsById.remove(id);
+        if (slot != null) {
+            unschedule(slot);
+        }
+    }
+
+    /**
+     * Forgets every slot scheduled under a resource, such as a doctor whose
+     * appointments were deleted in bulk. Slots of other resources stay
+     * indexed throughout.
+     */
+    public void removeScheduledUnder(String resource) {
+        ResourceSchedule schedule = schedules.get(resource);
+        if (schedule != null) {
+            schedule.ids().forEach(this::remove);
+        }
+    }
+
+    public void clear() {
+        slotsById.clear();
+        schedules.clear();
+    }
+
+    private void unschedule(Slot slot) {
+        for (ResourceSchedule schedule : slot.schedules) {
+            schedule.remove(slot);
+        }
+    }
+
+    private static boolean overlaps(AppointmentSummary stored, List<String> resources,
+                                    LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (!Appointment.overlaps(stored.getStartsAt(), stored.getFinishesAt(), startsAt, finishesAt)) {
+            return false;
+        }
+        List<String> storedResources =
+                ScheduleReservation.resourcesOf(stored.getRoomName(), stored.getDoctorId(), stored.getPatientId());
+        return storedResources.stream().anyMatch(resources::contains);
+    }
+
+    private boolean isIndexable(Appointment appointment) {
+        return Objects.nonNull(appointment.getRoom()) &&
+                Objects.nonNull(appointment.getRoom().getRoomName()) &&
+                Objects.nonNull(appointment.getStartsAt()) &&
+                Objects.nonNull(appointment.getFinishesAt());
+    }
+
+    private static final class ResourceSchedule {
+
+        private final NavigableSet<Slot> slots = new TreeSet<>();
+        private long longestSeconds;
+
+        synchronized boolean overlaps(LocalDateTime startsAt, LocalDateTime finishesAt) {
+            // nothing starting before startsAt - longestSeconds can still be running at startsAt
+            Slot from = Slot.probe(startsAt.minusSeconds(longestSeconds));
+            Slot to = Slot.probe(finishesAt);
+            for (Slot slot : slots.subSet(from, true, to, false)) {
+                if (slot.finishesAt.isAfter(startsAt)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void collectOverlapping(LocalDateTime startsAt, LocalDateTime finishesAt, Set<Long> ids) {
+            Slot from = Slot.probe(startsAt.minusSeconds(longestSeconds));
+            Slot to = Slot.probe(finishesAt);
+            for (Slot slot : slots.subSet(from, true, to, false)) {
+                if (slot.finishesAt.isAfter(startsAt)) {
+                    ids.add(slot.id);
+                }
+            }
+        }
+
+        synchronized List<Long> ids() {
+            List<Long> ids = new ArrayList<>(slots.size());
+            slots.forEach(slot -> ids.add(slot.id));
+            return ids;
+        }
+
+        synchronized void add(Slot slot) {
+            slots.add(slot);
+            longestSeconds = Math.max(longestSeconds, Duration.between(slot.startsAt, slot.finishesAt).getSeconds());
+        }
+
+        synchronized void remove(Slot slot) {
+            slots.remove(slot);
+        }
+    }
+
+    private static final class Slot implements Comparable<Slot> {
+
+        private final long id;
+        private final ResourceSchedule[] schedules;
+        private final LocalDateTime startsAt;
+        private final LocalDateTime finishesAt;
+
+        Slot(long id, ResourceSchedule[] schedules, LocalDateTime startsAt, LocalDateTime finishesAt) {
+            this.id = id;
+            this.schedules = schedules;
+            this.startsAt = startsAt;
+            this.finishesAt = finishesAt;
+        }
+
+        static Slot probe(LocalDateTime startsAt) {
+            return new Slot(Long.MIN_VALUE, null, startsAt, startsAt);
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int byStart = startsAt.compareTo(other.startsAt);
+            return byStart != 0 ? byStart : Long.compare(id, other.id);
+        }
+    }
+}
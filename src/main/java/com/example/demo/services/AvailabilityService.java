@@ -0,0 +1,117 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Computes the free windows of rooms over a time range.
+ * <p>
+ * Only the appointments intersecting the range are read, with one query for
+ * all requested rooms (sorted by room and start) and, when a doctor is given,
+ * one for the doctor's appointments (sorted by start). Each room's busy
+ * intervals are then merged with the doctor's in a single pass, and every gap
+ * at least as long as the requested duration is a free window. Intervals are
+ * half-open, as in the booking overlap check: a window may start exactly when
+ * an appointment finishes.
+ * <p>
+ * Requested rooms are resolved first and everything is keyed by the stored
+ * room name: the database may match names ignoring case, the lookups here
+ * must agree with it.
+ */
+@Service
+public class AvailabilityService {
+
+    public static final Duration MAX_RANGE = Duration.ofDays(31);
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    // empty when one of the requested rooms does not exist
+    @Transactional(readOnly = true)
+    public Optional<List<FreeSlot>> findFreeSlots(Collection<String> roomNames, Long doctorId,
+                                                  LocalDateTime from, LocalDateTime to, Duration duration) {
+        SortedSet<String> rooms = new TreeSet<>();
+        if (roomNames.isEmpty()) {
+            roomRepository.findAll().forEach(room -> rooms.add(room.getRoomName()));
+        } else {
+            SortedSet<String> found = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (Room room : roomRepository.findAllById(new TreeSet<>(roomNames))) {
+                rooms.add(room.getRoomName());
+                found.add(room.getRoomName());
+            }
+            if (!found.containsAll(roomNames)) {
+                return Optional.empty();
+            }
+        }
+        if (rooms.isEmpty()) {
+            return Optional.of(Collections.emptyList());
+        }
+
+        Map<String, List<AppointmentSummary>> bookedByRoom = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (AppointmentSummary booked : appointmentRepository.findSummariesOverlappingRooms(rooms, from, to)) {
+            bookedByRoom.computeIfAbsent(booked.getRoomName(), roomName -> new ArrayList<>()).add(booked);
+        }
+        List<AppointmentSummary> doctorBooked = doctorId == null
+                ? Collections.emptyList()
+                : appointmentRepository.findSummariesOfDoctorOverlapping(doctorId, from, to);
+
+        List<FreeSlot> slots = new ArrayList<>();
+        for (String room : rooms) {
+            List<AppointmentSummary> roomBooked = bookedByRoom.getOrDefault(room, Collections.emptyList());
+            addFreeSlots(room, roomBooked, doctorBooked, from, to, duration, slots);
+        }
+        return Optional.of(slots);
+    }
+
+    private static void addFreeSlots(String room, List<AppointmentSummary> roomBooked, List<AppointmentSummary> doctorBooked,
+                                     LocalDateTime from, LocalDateTime to, Duration duration, List<FreeSlot> slots) {
+        // both lists are sorted by start: walk them as one, the way a merge step does
+        LocalDateTime freeFrom = from;
+        int i = 0;
+        int j = 0;
+        while (i < roomBooked.size() || j < doctorBooked.size()) {
+            AppointmentSummary next = j >= doctorBooked.size()
+                    || i < roomBooked.size() && !roomBooked.get(i).getStartsAt().isAfter(doctorBooked.get(j).getStartsAt())
+                    ? roomBooked.get(i++)
+                    : doctorBooked.get(j++);
+            if (next.getStartsAt().isAfter(freeFrom)) {
+                addIfLongEnough(room, freeFrom, next.getStartsAt(), duration, slots);
+            }
+            if (next.getFinishesAt().isAfter(freeFrom)) {
+                freeFrom = next.getFinishesAt();
+            }
+        }
+        if (to.isAfter(freeFrom)) {
+            addIfLongEnough(room, freeFrom, to, duration, slots);
+        }
+    }
+
+    private static void addIfLongEnough(String room, LocalDateTime startsAt, LocalDateTime finishesAt,
+                                        Duration duration, List<FreeSlot> slots) {
+        if (Duration.between(startsAt, finishesAt).compareTo(duration) >= 0) {
+            slots.add(new FreeSlot(room, startsAt, finishesAt));
+        }
+    }
+}
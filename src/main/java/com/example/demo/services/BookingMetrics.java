@@ -0,0 +1,70 @@
+package com.example.demo.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for the booking path, so a slow booking can be traced to the phase
+ * that took the time.
+ * <p>
+ * {@code booking.phase} times each phase, tagged {@code phase}: the request
+ * checks in the controller ({@code validation}, {@code dates}), then the
+ * in-memory overlap check ({@code index}), the wait for the resource locks
+ * ({@code lock}), the reservation rows and overlap probes in the database
+ * ({@code overlap}), resolving participants and saving ({@code save}) and the
+ * whole transaction up to its commit, where the inserts are flushed
+ * ({@code transaction}). {@code booking.rejected} counts refused bookings by
+ * the status they were answered with, and {@code booking.retries} the
+ * transactions rolled back after losing a race to another node.
+ * <p>
+ * Repository calls are timed by Spring Data as
+ * {@code spring.data.repository.invocations}, and the connection pool and
+ * caches publish their own gauges.
+ */
+@Component
+public class BookingMetrics {
+
+    public static final String VALIDATION = "validation";
+    public static final String DATES = "dates";
+    public static final String INDEX = "index";
+    public static final String LOCK = "lock";
+    public static final String OVERLAP = "overlap";
+    public static final String SAVE = "save";
+    public static final String TRANSACTION = "transaction";
+
+    private final MeterRegistry meterRegistry;
+    private final Counter retries;
+
+    public BookingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.retries = Counter.builder("booking.retries")
+                .description("Booking transactions rolled back after a concurrent booking of the same resource")
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stop(Timer.Sample sample, String phase) {
+        sample.stop(Timer.builder("booking.phase")
+                .description("Time spent in each phase of a booking")
+                .tag("phase", phase)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Counts a refused booking; {@code endpoint} is {@code single} or
+     * {@code batch}, {@code status} the HTTP status it was answered with.
+     */
+    public void rejected(String endpoint, String status) {
+        meterRegistry.counter("booking.rejected", "endpoint", endpoint, "reason", status).increment();
+    }
+
+    public void retried() {
+        retries.increment();
+    }
+}
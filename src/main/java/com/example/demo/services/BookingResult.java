@@ -0,0 +1,7 @@
+package com.example.demo.services;
+
+public enum BookingResult {
+    BOOKED,
+    OVERLAP,
+    CONTENDED
+}
@@ -0,0 +1,126 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.ScheduleReservation;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Empties whole tables with set-based {@code DELETE} statements instead of
+ * loading and removing entities one by one.
+ * <p>
+ * Tables keyed by a generated id are walked in id ranges of
+ * {@code bulk-delete.chunk-size} rows, each range in its own transaction, so
+ * no single transaction or undo log grows with the table. Appointments
+ * referencing the rows of a range are deleted first, in the same transaction,
+ * to respect the foreign keys.
+ */
+@Service
+public class BulkDeletionService {
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    AppointmentScheduleIndex appointmentScheduleIndex;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${bulk-delete.chunk-size:10000}")
+    int chunkSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public long deleteAllAppointments() {
+        long deleted = deleteInChunks(appointmentRepository::findMinId, appointmentRepository::findMaxId,
+                appointmentRepository::deleteByIdBetween);
+        appointmentScheduleIndex.clear();
+        return deleted;
+    }
+
+    public long deleteAllDoctors() {
+        return deleteInChunks(doctorRepository::findMinId, doctorRepository::findMaxId, (from, to) -> {
+            appointmentRepository.deleteByDoctorIdBetween(from, to);
+            unscheduleBetween(from, to, ScheduleReservation::doctorKey);
+            return doctorRepository.deleteByIdBetween(from, to);
+        });
+    }
+
+    public long deleteAllPatients() {
+        return deleteInChunks(patientRepository::findMinId, patientRepository::findMaxId, (from, to) -> {
+            appointmentRepository.deleteByPatientIdBetween(from, to);
+            unscheduleBetween(from, to, ScheduleReservation::patientKey);
+            return patientRepository.deleteByIdBetween(from, to);
+        });
+    }
+
+    public long deleteAllRooms() {
+        // rooms are keyed by name and few: only the appointments need chunking
+        deleteInChunks(appointmentRepository::findMinId, appointmentRepository::findMaxId,
+                appointmentRepository::deleteWithRoomByIdBetween);
+        long deleted = transactionTemplate.execute(status -> {
+            long rooms = roomRepository.count();
+            roomRepository.deleteAllInBatch();
+            return rooms;
+        });
+        // every indexed slot has a room
+        appointmentScheduleIndex.clear();
+        return deleted;
+    }
+
+    private long deleteInChunks(Supplier<Long> minId, Supplier<Long> maxId, RangeDeletion deletion) {
+        Long min = minId.get();
+        Long max = maxId.get();
+        if (min == null || max == null) {
+            return 0;
+        }
+
+        long deleted = 0;
+        for (long from = min; from <= max; from += chunkSize) {
+            long to = from + chunkSize - 1;
+            long first = from;
+            deleted += transactionTemplate.execute(status -> deletion.delete(first, to));
+        }
+        return deleted;
+    }
+
+    // Only the slots of the deleted range are dropped: the rest of the index keeps
+    // answering, and a removal cannot bring back a slot deleted concurrently.
+    private void unscheduleBetween(long from, long to, LongFunction<String> resource) {
+        for (long id = from; id <= to; id++) {
+            appointmentScheduleIndex.removeScheduledUnder(resource.apply(id));
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeDeletion {
+        int delete(long from, long to);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.ChangeCounter;
+import com.example.demo.repositories.ChangeCounterRepository;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the missing {@link ChangeCounter} rows before the application takes
+ * any request: a write counted on a missing shard would be lost, and its list
+ * would keep answering 304.
+ */
+@Component
+public class ChangeCounterSeeder {
+
+    @Autowired
+    ChangeCounterRepository changeCounterRepository;
+
+    @PostConstruct
+    public void seed() {
+        for (String table : ChangeCounter.TABLES) {
+            for (int shard = 0; shard < ChangeCounter.SHARDS; shard++) {
+                if (!changeCounterRepository.existsById(new ChangeCounter.Key(table, shard))) {
+                    try {
+                        changeCounterRepository.saveAndFlush(new ChangeCounter(table, shard));
+                    } catch (DataIntegrityViolationException e) {
+                        // another node created it first
+                    }
+                }
+            }
+        }
+    }
+}
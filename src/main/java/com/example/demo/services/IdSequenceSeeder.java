@@ -0,0 +1,70 @@
+package com.example.demo.services;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves every table-backed id sequence (see
+ * {@link com.example.demo.entities.PooledLoSequenceGenerator}) above the
+ * largest id already in its entity table, before the application takes any
+ * request.
+ * <p>
+ * On MySQL the sequences are single-row tables that {@code ddl-auto=update}
+ * creates starting at 1, while databases created when ids came from
+ * {@code hibernate_sequence} already hold rows with higher ids. The update only
+ * ever raises a sequence, so it is a no-op on every later start and cannot
+ * take back a block another node has already handed out. Physical sequences
+ * are only created together with empty tables and are left alone.
+ */
+@Component
+public class IdSequenceSeeder {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void seed() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+            String sql = seedStatement(persister);
+            if (sql != null) {
+                transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(sql).executeUpdate());
+            }
+        }
+    }
+
+    private static String seedStatement(EntityPersister persister) {
+        IdentifierGenerator generator = persister.getIdentifierGenerator();
+        if (!(generator instanceof SequenceStyleGenerator) || !(persister instanceof AbstractEntityPersister)) {
+            return null;
+        }
+        DatabaseStructure sequence = ((SequenceStyleGenerator) generator).getDatabaseStructure();
+        if (sequence.isPhysicalSequence()) {
+            return null;
+        }
+        AbstractEntityPersister entity = (AbstractEntityPersister) persister;
+        return "update " + sequence.getName() + " set next_val = greatest(next_val, " +
+                "(select coalesce(max(" + entity.getIdentifierColumnNames()[0] + "), 0) + 1 from " +
+                entity.getTableName() + "))";
+    }
+}
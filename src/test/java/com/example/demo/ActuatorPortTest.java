@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// The management settings of application.properties, which the test properties file shadows,
+// on random ports. Metrics export is off in tests unless asked for.
+@AutoConfigureMetrics
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "management.endpoints.web.exposure.include=health,metrics,caches,prometheus",
+        "management.server.port=0",
+        "management.server.address=127.0.0.1",
+        "management.metrics.distribution.slo.http.server.requests=25ms,100ms,250ms,500ms,1s,5s"
+})
+class ActuatorPortTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void should_not_serve_actuator_on_application_port(){
+        assertThat(restTemplate.getForEntity("/actuator/prometheus", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(restTemplate.getForEntity("/actuator/caches", String.class).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void should_publish_request_slo_buckets_on_management_port(){
+        restTemplate.getForEntity("/api/rooms", String.class);
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity(
+                "http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("le=\"0.1\"")
+                // a full percentiles histogram would publish Micrometer's own bucket boundaries
+                .doesNotContain("le=\"0.001398101\"");
+    }
+}
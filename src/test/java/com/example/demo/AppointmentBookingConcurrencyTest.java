@@ -0,0 +1,208 @@
+package com.example.demo;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.repositories.ScheduleReservationRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BookingMetrics;
+import com.example.demo.services.BookingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Hammers the booking service from many threads against an in-memory stand-in
+ * for the appointment table that widens the check-then-insert window, and
+ * verifies that no room ever ends up double-booked.
+ */
+class AppointmentBookingConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentBookingConcurrencyTest.class);
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 400;
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 7, 4, 8, 0);
+
+    private final Map<String, List<Appointment>> table = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    private AppointmentBookingService bookingService;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentRepository repository = mock(AppointmentRepository.class, withSettings().stubOnly());
+
+        when(repository.existsOverlapping(any(), any(), any())).thenAnswer(invocation -> {
+            String roomName = invocation.getArgument(0);
+            LocalDateTime startsAt = invocation.getArgument(1);
+            LocalDateTime finishesAt = invocation.getArgument(2);
+            return rows(roomName).stream()
+                    .anyMatch(a -> a.getStartsAt().isBefore(finishesAt) && a.getFinishesAt().isAfter(startsAt));
+        });
+        when(repository.save(any(Appointment.class))).thenAnswer(invocation -> {
+            Appointment appointment = invocation.getArgument(0);
+            // give a racing booking every chance to slip in between check and insert
+            LockSupport.parkNanos(20_000);
+            appointment.setId(ids.incrementAndGet());
+            rows(appointment.getRoom().getRoomName()).add(appointment);
+            return appointment;
+        });
+
+        when(repository.findSummariesByIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> wanted = invocation.getArgument(0);
+            List<AppointmentSummary> summaries = new ArrayList<>();
+            table.values().forEach(rows -> rows.stream().filter(a -> wanted.contains(a.getId())).forEach(a ->
+                    summaries.add(new AppointmentSummary(a.getId(), a.getRoom().getRoomName(), a.getDoctor().getId(),
+                            a.getPatient().getId(), a.getStartsAt(), a.getFinishesAt()))));
+            return summaries;
+        });
+
+        ScheduleReservationRepository reservations = mock(ScheduleReservationRepository.class, withSettings().stubOnly());
+        when(reservations.findByResource(any())).thenReturn(Optional.empty());
+
+        // every participant already exists and is referenced by id or name
+        RoomRepository rooms = mock(RoomRepository.class, withSettings().stubOnly());
+        when(rooms.findById(any())).thenAnswer(invocation -> Optional.of(new Room(invocation.getArgument(0))));
+        PatientRepository patients = mock(PatientRepository.class, withSettings().stubOnly());
+        when(patients.getReferenceById(any())).thenAnswer(invocation -> patient(invocation.getArgument(0)));
+        DoctorRepository doctors = mock(DoctorRepository.class, withSettings().stubOnly());
+        when(doctors.getReferenceById(any())).thenAnswer(invocation -> doctor(invocation.getArgument(0)));
+
+        AppointmentScheduleIndex index = new AppointmentScheduleIndex();
+        ReflectionTestUtils.setField(index, "appointmentRepository", repository);
+        bookingService = new AppointmentBookingService();
+        ReflectionTestUtils.setField(bookingService, "appointmentRepository", repository);
+        ReflectionTestUtils.setField(bookingService, "scheduleReservationRepository", reservations);
+        ReflectionTestUtils.setField(bookingService, "roomRepository", rooms);
+        ReflectionTestUtils.setField(bookingService, "patientRepository", patients);
+        ReflectionTestUtils.setField(bookingService, "doctorRepository", doctors);
+        ReflectionTestUtils.setField(bookingService, "appointmentScheduleIndex", index);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(bookingService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(bookingService, "bookingMetrics", new BookingMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(bookingService, "maxAttempts", 3);
+        ReflectionTestUtils.invokeMethod(bookingService, "init");
+    }
+
+    @Test
+    void shouldNeverDoubleBookOneContendedRoom() throws Exception {
+        long booked = hammer(1);
+
+        assertThat(booked).isPositive();
+        assertNoDoubleBookings();
+    }
+
+    @Test
+    void shouldNeverDoubleBookManyRoomsInParallel() throws Exception {
+        long booked = hammer(64);
+
+        assertThat(booked).isPositive();
+        assertNoDoubleBookings();
+    }
+
+    private long hammer(int rooms) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long booked = 0;
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    // 15 minute grid, 15 to 60 minute slots: plenty of overlapping attempts
+                    LocalDateTime startsAt = DAY.plusMinutes(15L * random.nextInt(200));
+                    LocalDateTime finishesAt = startsAt.plusMinutes(15L * (1 + random.nextInt(4)));
+                    Room room = new Room("Room-" + random.nextInt(rooms));
+                    Appointment appointment = new Appointment(patient(1 + random.nextInt(100)), doctor(1 + random.nextInt(10)),
+                            room, startsAt, finishesAt);
+                    if (bookingService.book(appointment) == BookingResult.BOOKED) {
+                        booked++;
+                    }
+                }
+                return booked;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        long booked = 0;
+        for (Future<Long> result : results) {
+            booked += result.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - began;
+        executor.shutdown();
+
+        long attempts = (long) THREADS * ATTEMPTS_PER_THREAD;
+        log.info("{} room(s): {} attempts, {} booked in {} ms ({} attempts/s)", rooms, attempts, booked,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), attempts * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsed, 1));
+        return booked;
+    }
+
+    private void assertNoDoubleBookings() {
+        for (Map.Entry<String, List<Appointment>> room : table.entrySet()) {
+            List<Appointment> appointments = new ArrayList<>(room.getValue());
+            appointments.sort(Comparator.comparing(Appointment::getStartsAt));
+            for (int i = 1; i < appointments.size(); i++) {
+                assertThat(appointments.get(i).getStartsAt())
+                        .as("double booking in %s", room.getKey())
+                        .isAfterOrEqualTo(appointments.get(i - 1).getFinishesAt());
+            }
+        }
+    }
+
+    private List<Appointment> rows(String roomName) {
+        return table.computeIfAbsent(roomName, k -> new CopyOnWriteArrayList<>());
+    }
+
+    private static Patient patient(long id) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        return patient;
+    }
+
+    private static Doctor doctor(long id) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        return doctor;
+    }
+}
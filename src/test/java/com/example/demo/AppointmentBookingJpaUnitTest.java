@@ -0,0 +1,254 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.repositories.ScheduleReservationRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BookingResult;
+
+
+// Not a @DataJpaTest: bookings run in their own transactions and must commit for real.
+@SpringBootTest
+class AppointmentBookingJpaUnitTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentBookingService bookingService;
+
+    @Autowired
+    AppointmentScheduleIndex scheduleIndex;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    ScheduleReservationRepository scheduleReservationRepository;
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        roomRepository.deleteAll();
+        scheduleReservationRepository.deleteAll();
+        scheduleIndex.clear();
+        // deleted rooms leave soft locks in the cache that would keep a recreated room out
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void should_book_referenced_participants_with_a_single_insert(){
+        Patient patient = patientRepository.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        bookingService.book(new Appointment(reference(patient), reference(doctor), new Room("Dermatology"),
+                MONDAY, MONDAY.plusMinutes(30)));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        BookingResult result = bookingService.book(new Appointment(reference(patient), reference(doctor),
+                new Room("Dermatology"), MONDAY.plusMinutes(30), MONDAY.plusMinutes(60)));
+
+        assertThat(result).isEqualTo(BookingResult.BOOKED);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityStatistics(Patient.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityStatistics(Doctor.class.getName()).getLoadCount()).isZero();
+        assertThat(patientRepository.count()).isEqualTo(1);
+        assertThat(doctorRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_resolve_known_room_from_second_level_cache(){
+        Patient patient = patientRepository.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        bookingService.book(new Appointment(reference(patient), reference(doctor), new Room("Dermatology"),
+                MONDAY, MONDAY.plusMinutes(30)));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        bookingService.book(new Appointment(reference(patient), reference(doctor), new Room("Dermatology"),
+                MONDAY.plusMinutes(30), MONDAY.plusMinutes(60)));
+
+        assertThat(statistics.getDomainDataRegionStatistics("rooms").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getEntityStatistics(Room.class.getName()).getLoadCount()).isZero();
+    }
+
+    @Test
+    void should_not_book_unknown_referenced_patient(){
+        Patient unknown = new Patient();
+        unknown.setId(Long.MAX_VALUE);
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+
+        assertThatThrownBy(() -> bookingService.book(new Appointment(unknown, reference(doctor), new Room("Dermatology"),
+                MONDAY, MONDAY.plusMinutes(30)))).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(appointmentRepository.count()).isZero();
+    }
+
+    @Test
+    void should_keep_participants_when_appointment_is_deleted(){
+        bookingService.book(schedule("Dermatology", 0, 1).get(0));
+
+        appointmentRepository.deleteAll();
+
+        assertThat(patientRepository.count()).isEqualTo(1);
+        assertThat(doctorRepository.count()).isEqualTo(1);
+        assertThat(roomRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_insert_batch_with_batched_statements(){
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Appointment> appointments = schedule("Dermatology", 0, 20);
+
+        statistics.clear();
+        assertThat(bookingService.bookAll(appointments)).isEqualTo(BookingResult.BOOKED);
+
+        // 60 rows over three tables: one id block fetch and one JDBC batch per table
+        // instead of an id fetch and an insert per row
+        assertThat(appointmentRepository.count()).isEqualTo(20);
+        assertThat(statistics.getEntityInsertCount()).isGreaterThanOrEqualTo(60);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(20);
+    }
+
+    @Test
+    void should_book_batch_into_existing_room(){
+        assertThat(bookingService.bookAll(schedule("Dermatology", 0, 2))).isEqualTo(BookingResult.BOOKED);
+
+        assertThat(bookingService.bookAll(schedule("Dermatology", 2, 2))).isEqualTo(BookingResult.BOOKED);
+
+        assertThat(appointmentRepository.count()).isEqualTo(4);
+        assertThat(roomRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_reject_whole_batch_overlapping_stored_appointment(){
+        bookingService.bookAll(schedule("Dermatology", 1, 1));
+        // the in-memory index would reject it first, make the database answer
+        scheduleIndex.clear();
+
+        List<Appointment> appointments = schedule("Dermatology", 0, 3);
+        appointments.addAll(schedule("Oncology", 0, 3));
+
+        assertThat(bookingService.bookAll(appointments)).isEqualTo(BookingResult.OVERLAP);
+        assertThat(appointmentRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_reject_batch_booking_a_room_twice_under_another_case(){
+        List<Appointment> appointments = schedule("Dermatology", 0, 1);
+        appointments.addAll(schedule("dermatology", 0, 1));
+
+        assertThat(bookingService.bookAll(appointments)).isEqualTo(BookingResult.OVERLAP);
+        assertThat(appointmentRepository.count()).isZero();
+    }
+
+    @Test
+    void should_book_batch_under_both_cases_into_one_room(){
+        List<Appointment> appointments = schedule("Dermatology", 0, 1);
+        appointments.addAll(schedule("dermatology", 1, 1));
+
+        assertThat(bookingService.bookAll(appointments)).isEqualTo(BookingResult.BOOKED);
+        assertThat(roomRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_warm_up_schedule_index_from_stored_appointments(){
+        bookingService.bookAll(schedule("Dermatology", 0, 3));
+        scheduleIndex.clear();
+
+        scheduleIndex.warmUp();
+
+        assertThat(scheduleIndex.overlaps(schedule("Dermatology", 2, 1).get(0))).isTrue();
+        assertThat(scheduleIndex.overlaps(schedule("Dermatology", 3, 1).get(0))).isFalse();
+    }
+
+    @Test
+    void should_not_book_doctor_into_two_rooms_at_once(){
+        Patient patient = patientRepository.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        bookingService.book(new Appointment(reference(patient), reference(doctor), new Room("Dermatology"),
+                MONDAY, MONDAY.plusMinutes(30)));
+        // the in-memory index would reject it first, make the database answer
+        scheduleIndex.clear();
+
+        BookingResult result = bookingService.book(new Appointment(new Patient("Paula", "Olaya", 37, "p.olaya@email.com"),
+                reference(doctor), new Room("Oncology"), MONDAY.plusMinutes(15), MONDAY.plusMinutes(45)));
+
+        assertThat(result).isEqualTo(BookingResult.OVERLAP);
+        assertThat(bookingService.book(new Appointment(new Patient("Paula", "Olaya", 37, "p.olaya@email.com"),
+                reference(doctor), new Room("Oncology"), MONDAY.plusMinutes(30), MONDAY.plusMinutes(60))))
+                .isEqualTo(BookingResult.BOOKED);
+    }
+
+    @Test
+    void should_reject_batch_booking_a_patient_twice_at_once(){
+        Patient patient = patientRepository.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        List<Appointment> appointments = schedule("Dermatology", 0, 1);
+        appointments.addAll(schedule("Oncology", 0, 1));
+        appointments.forEach(appointment -> appointment.setPatient(reference(patient)));
+
+        assertThat(bookingService.bookAll(appointments)).isEqualTo(BookingResult.OVERLAP);
+        assertThat(appointmentRepository.count()).isZero();
+    }
+
+    private static Patient reference(Patient patient){
+        Patient reference = new Patient();
+        reference.setId(patient.getId());
+        return reference;
+    }
+
+    private static Doctor reference(Doctor doctor){
+        Doctor reference = new Doctor();
+        reference.setId(doctor.getId());
+        return reference;
+    }
+
+    private List<Appointment> schedule(String roomName, int firstSlot, int slots){
+        Room room = new Room(roomName);
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = firstSlot; i < firstSlot + slots; i++) {
+            Patient patient = new Patient("Patient " + i, "Olaya", 37, "p" + i + "@email.com");
+            Doctor doctor = new Doctor("Doctor " + i, "Amalia", 24, "d" + i + "@hospital.accwe");
+            LocalDateTime startsAt = MONDAY.plusMinutes(30L * i);
+            appointments.add(new Appointment(patient, doctor, room, startsAt, startsAt.plusMinutes(30)));
+        }
+        return appointments;
+    }
+    
+}
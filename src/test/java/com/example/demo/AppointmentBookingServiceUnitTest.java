@@ -0,0 +1,200 @@
+package com.example.demo;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.entities.ScheduleReservation;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.repositories.ScheduleReservationRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BookingMetrics;
+import com.example.demo.services.BookingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentBookingServiceUnitTest {
+
+    private static final LocalDateTime STARTS_AT = LocalDateTime.of(2023, 7, 4, 10, 0);
+
+    private AppointmentRepository appointmentRepository;
+    private ScheduleReservationRepository scheduleReservationRepository;
+    private RoomRepository roomRepository;
+    private PatientRepository patientRepository;
+    private DoctorRepository doctorRepository;
+    private AppointmentScheduleIndex appointmentScheduleIndex;
+    private PlatformTransactionManager transactionManager;
+    private AppointmentBookingService bookingService;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        scheduleReservationRepository = mock(ScheduleReservationRepository.class);
+        roomRepository = mock(RoomRepository.class);
+        patientRepository = mock(PatientRepository.class);
+        doctorRepository = mock(DoctorRepository.class);
+        appointmentScheduleIndex = new AppointmentScheduleIndex();
+        ReflectionTestUtils.setField(appointmentScheduleIndex, "appointmentRepository", appointmentRepository);
+
+        bookingService = new AppointmentBookingService();
+        ReflectionTestUtils.setField(bookingService, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(bookingService, "scheduleReservationRepository", scheduleReservationRepository);
+        ReflectionTestUtils.setField(bookingService, "roomRepository", roomRepository);
+        ReflectionTestUtils.setField(bookingService, "patientRepository", patientRepository);
+        ReflectionTestUtils.setField(bookingService, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(bookingService, "appointmentScheduleIndex", appointmentScheduleIndex);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(bookingService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(bookingService, "bookingMetrics", new BookingMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(bookingService, "maxAttempts", 3);
+        ReflectionTestUtils.invokeMethod(bookingService, "init");
+
+        when(scheduleReservationRepository.findByResource(ScheduleReservation.roomKey("Dentist")))
+                .thenReturn(Optional.of(new ScheduleReservation(ScheduleReservation.roomKey("Dentist"))));
+        when(roomRepository.save(any(Room.class))).then(returnsFirstArg());
+        when(patientRepository.save(any(Patient.class))).then(returnsFirstArg());
+        when(doctorRepository.save(any(Doctor.class))).then(returnsFirstArg());
+    }
+
+    @Test
+    void shouldBookAndIndexFreeSlot() {
+        // given
+        Appointment appointment = appointment();
+
+        // when
+        BookingResult result = bookingService.book(appointment);
+
+        // then
+        assertThat(result).isEqualTo(BookingResult.BOOKED);
+        assertThat(appointmentScheduleIndex.overlaps(appointment())).isTrue();
+    }
+
+    @Test
+    void shouldNotBookOverlappingSlot() {
+        // given
+        when(appointmentRepository.existsOverlapping("Dentist", STARTS_AT, STARTS_AT.plusHours(1))).thenReturn(true);
+
+        // when
+        BookingResult result = bookingService.book(appointment());
+
+        // then
+        assertThat(result).isEqualTo(BookingResult.OVERLAP);
+        verify(appointmentRepository, times(0)).save(any(Appointment.class));
+    }
+
+    @Test
+    void shouldRollBackReservationsOfRejectedBooking() {
+        // given
+        when(appointmentRepository.existsOverlapping("Dentist", STARTS_AT, STARTS_AT.plusHours(1))).thenReturn(true);
+        ArgumentCaptor<TransactionStatus> transaction = ArgumentCaptor.forClass(TransactionStatus.class);
+
+        // when
+        BookingResult result = bookingService.book(appointment());
+
+        // then: the versions forced on the reservation rows are not committed
+        assertThat(result).isEqualTo(BookingResult.OVERLAP);
+        verify(transactionManager).commit(transaction.capture());
+        assertThat(transaction.getValue().isRollbackOnly()).isTrue();
+    }
+
+    @Test
+    void shouldRetryWhenAnotherNodeBookedTheRoomConcurrently() {
+        // given
+        Appointment appointment = appointment();
+        when(appointmentRepository.save(appointment))
+                .thenAnswer(invocation -> {
+                    appointment.setId(41);
+                    appointment.getPatient().setId(42);
+                    throw new ObjectOptimisticLockingFailureException(ScheduleReservation.class, "room:Dentist");
+                })
+                .thenReturn(appointment);
+
+        // when
+        BookingResult result = bookingService.book(appointment);
+
+        // then
+        assertThat(result).isEqualTo(BookingResult.BOOKED);
+        assertThat(appointment.getId()).isZero();
+        assertThat(appointment.getPatient().getId()).isZero();
+        verify(appointmentRepository, times(2)).existsOverlapping("Dentist", STARTS_AT, STARTS_AT.plusHours(1));
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        // given
+        when(appointmentRepository.save(any(Appointment.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(ScheduleReservation.class, "room:Dentist"));
+
+        // when
+        BookingResult result = bookingService.book(appointment());
+
+        // then
+        assertThat(result).isEqualTo(BookingResult.CONTENDED);
+        verify(appointmentRepository, times(3)).save(any(Appointment.class));
+        assertThat(appointmentScheduleIndex.overlaps(appointment())).isFalse();
+    }
+
+    @Test
+    void shouldRetryWhenFirstReservationOfRoomWasCreatedConcurrently() {
+        // given
+        when(scheduleReservationRepository.findByResource(ScheduleReservation.roomKey("Oncology")))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new ScheduleReservation(ScheduleReservation.roomKey("Oncology"))));
+        when(scheduleReservationRepository.saveAndFlush(any(ScheduleReservation.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // when
+        BookingResult result = bookingService.book(appointment("Oncology"));
+
+        // then
+        assertThat(result).isEqualTo(BookingResult.BOOKED);
+    }
+
+    @Test
+    void shouldNotRetryUnrelatedIntegrityViolations() {
+        // given
+        when(appointmentRepository.save(any(Appointment.class)))
+                .thenThrow(new DataIntegrityViolationException("not null"));
+
+        // when
+        // then
+        assertThatThrownBy(() -> bookingService.book(appointment()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(appointmentRepository, times(1)).save(any(Appointment.class));
+    }
+
+    private Appointment appointment() {
+        return appointment("Dentist");
+    }
+
+    private Appointment appointment(String roomName) {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        return new Appointment(patient, doctor, new Room(roomName), STARTS_AT, STARTS_AT.plusHours(1));
+    }
+}
@@ -1,49 +1,116 @@
 package com.example.demo;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.containsString;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.format.*;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.example.demo.controllers.AppointmentController;
 import com.example.demo.repositories.*;
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.TableVersion;
 import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentExportService;
+import com.example.demo.services.BulkDeletionService;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BookingMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(AppointmentController.class)
+@Import({AppointmentBookingService.class, AppointmentScheduleIndex.class, BookingMetrics.class, SimpleMeterRegistry.class})
 class AppointmentControllerUnitTest{
 
     @MockBean
     private AppointmentRepository appointmentRepository;
 
+    @MockBean
+    private ScheduleReservationRepository scheduleReservationRepository;
+
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @MockBean
+    private PatientRepository patientRepository;
+
+    @MockBean
+    private DoctorRepository doctorRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private AppointmentExportService appointmentExportService;
+
+    @MockBean
+    private BulkDeletionService bulkDeletionService;
+
     @Autowired 
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AppointmentScheduleIndex appointmentScheduleIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        when(appointmentRepository.findTableVersion()).thenReturn(new TableVersion(0L, null));
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+    }
+
+    @AfterEach
+    void tearDown() {
+        // the index is a singleton shared by every test in the context
+        appointmentScheduleIndex.clear();
+    }
+
     @Test
     void shouldCreateAppointment() throws Exception {
         
@@ -108,10 +175,7 @@ class AppointmentControllerUnitTest{
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
-        
-        when(appointmentRepository.findAll()).thenReturn(appointments);
+        when(appointmentRepository.existsOverlapping(room.getRoomName(), startsAt, finishesAt)).thenReturn(true);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isNotAcceptable());
@@ -147,10 +211,7 @@ class AppointmentControllerUnitTest{
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
-        
-        when(appointmentRepository.findAll()).thenReturn(appointments);
+        when(appointmentRepository.existsOverlapping(room.getRoomName(), startsAt, finishesAt)).thenReturn(true);
         mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isOk());
@@ -158,6 +219,88 @@ class AppointmentControllerUnitTest{
 
     }
     
+    @Test
+    void shouldRejectOverlapFromScheduleIndexConfirmedByPrimaryKey() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        appointment.setId(1);
+        appointmentScheduleIndex.add(appointment);
+
+        Appointment appointment2 = new Appointment(patient, doctor, room, startsAt.plusMinutes(15), finishesAt);
+        when(appointmentRepository.findSummariesByIdIn(Collections.singleton(1L))).thenReturn(Collections.singletonList(
+                new AppointmentSummary(1L, room.getRoomName(), 0L, 0L, startsAt, finishesAt)));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment2)))
+                .andExpect(status().isNotAcceptable());
+
+        verify(appointmentRepository, never()).existsOverlapping(any(), any(), any());
+    }
+
+    @Test
+    void shouldBookSlotDeletedOnAnotherNodeDespiteScheduleIndex() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+        appointment.setId(1);
+        appointmentScheduleIndex.add(appointment);
+
+        // the row is gone: another node deleted it
+        when(appointmentRepository.findSummariesByIdIn(Collections.singleton(1L))).thenReturn(Collections.emptyList());
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Appointment(patient, doctor, room, startsAt, finishesAt))))
+                .andExpect(status().isOk());
+
+        verify(appointmentRepository).existsOverlapping(room.getRoomName(), startsAt, finishesAt);
+    }
+
+    @Test
+    void shouldCountRejectedBookingsByReasonAndTimePhases() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+        double overlaps = rejected("NOT_ACCEPTABLE");
+        double invalid = rejected("BAD_REQUEST");
+
+        when(appointmentRepository.existsOverlapping(room.getRoomName(), startsAt, finishesAt)).thenReturn(true);
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Appointment(patient, doctor, room, startsAt, finishesAt))))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Appointment(patient, doctor, room, finishesAt, startsAt))))
+                .andExpect(status().isBadRequest());
+
+        assertThat(rejected("NOT_ACCEPTABLE")).isEqualTo(overlaps + 1);
+        assertThat(rejected("BAD_REQUEST")).isEqualTo(invalid + 1);
+        assertThat(meterRegistry.get("booking.phase").tag("phase", BookingMetrics.OVERLAP).timer().count()).isPositive();
+        assertThat(meterRegistry.get("booking.phase").tag("phase", BookingMetrics.DATES).timer().count()).isPositive();
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("booking.rejected", "endpoint", "single", "reason", reason).count();
+    }
+
     @Test
     void shouldGetNoAppointments() throws Exception{
         List<Appointment> appointments = new ArrayList<Appointment>();
@@ -196,6 +339,172 @@ class AppointmentControllerUnitTest{
                 
     }
 
+    @Test
+    void shouldCreateAppointmentWithParticipantsReferencedById() throws Exception {
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"patient\":{\"id\":7},\"doctor\":{\"id\":3},\"room\":{\"roomName\":\"Dermatology\"}," +
+                        "\"startsAt\":\"19:30 24/04/2023\",\"finishesAt\":\"20:30 24/04/2023\"}"))
+                .andExpect(status().isOk());
+        verify(patientRepository).getReferenceById(7L);
+        verify(doctorRepository).getReferenceById(3L);
+        verify(patientRepository, never()).save(any());
+        verify(doctorRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotCreateAppointmentWithIncompleteParticipantOfNegativeId() throws Exception {
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"patient\":{\"id\":-7},\"doctor\":{\"id\":3},\"room\":{\"roomName\":\"Dermatology\"}," +
+                        "\"startsAt\":\"19:30 24/04/2023\",\"finishesAt\":\"20:30 24/04/2023\"}"))
+                .andExpect(status().isBadRequest());
+        verify(patientRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotCreateAppointmentWithUnknownParticipant() throws Exception {
+        when(appointmentRepository.save(any(Appointment.class)))
+                .thenThrow(new DataIntegrityViolationException("foreign key"));
+
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"patient\":{\"id\":7},\"doctor\":{\"id\":3},\"room\":{\"roomName\":\"Dermatology\"}," +
+                        "\"startsAt\":\"19:30 24/04/2023\",\"finishesAt\":\"20:30 24/04/2023\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCreateAppointmentsInBatch() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        List<Appointment> appointments = new ArrayList<Appointment>();
+        appointments.add(new Appointment(patient, doctor, room,
+                LocalDateTime.parse("19:30 24/04/2023", formatter), LocalDateTime.parse("20:30 24/04/2023", formatter)));
+        appointments.add(new Appointment(patient, doctor, room,
+                LocalDateTime.parse("20:30 24/04/2023", formatter), LocalDateTime.parse("21:30 24/04/2023", formatter)));
+
+        mockMvc.perform(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointments)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        verify(appointmentRepository).saveAll(any());
+        verify(appointmentRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotCreateAppointmentsOverlappingWithinBatch() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        List<Appointment> appointments = new ArrayList<Appointment>();
+        appointments.add(new Appointment(patient, doctor, room,
+                LocalDateTime.parse("19:30 24/04/2023", formatter), LocalDateTime.parse("20:30 24/04/2023", formatter)));
+        appointments.add(new Appointment(patient, doctor, room,
+                LocalDateTime.parse("20:00 24/04/2023", formatter), LocalDateTime.parse("21:00 24/04/2023", formatter)));
+
+        mockMvc.perform(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointments)))
+                .andExpect(status().isNotAcceptable());
+        verify(appointmentRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void shouldNotCreateEmptyAppointmentBatch() throws Exception {
+        mockMvc.perform(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetFirstAppointmentsPageWithNextLink() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:00 24/04/2023", formatter);
+
+        List<Appointment> appointments = new ArrayList<Appointment>();
+        appointments.add(new Appointment(patient, doctor, room, startsAt, finishesAt));
+
+        when(appointmentRepository.findAllBy(PageRequest.of(0, 1, Sort.by("id"))))
+                .thenReturn(new SliceImpl<>(appointments, PageRequest.of(0, 1), true));
+        mockMvc.perform(get("/api/appointments").param("page", "0").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK, containsString("page=1")));
+    }
+
+    @Test
+    void shouldGetAppointmentSummaries() throws Exception{
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:00 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:00 24/04/2023", formatter);
+
+        List<AppointmentSummary> summaries = new ArrayList<AppointmentSummary>();
+        summaries.add(new AppointmentSummary(1, "Dermatology", 2L, 3L, startsAt, finishesAt));
+
+        when(appointmentRepository.findAllSummaries()).thenReturn(summaries);
+        mockMvc.perform(get("/api/appointments").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].doctorId").value(2))
+                .andExpect(jsonPath("$[0].patientId").value(3))
+                .andExpect(jsonPath("$[0].startsAt").value("19:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].doctor").doesNotExist());
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldNotReadAppointmentsWhenTableIsUnchanged() throws Exception{
+        TableVersion version = new TableVersion(2L, Instant.parse("2023-04-24T08:00:00Z"));
+        when(appointmentRepository.findTableVersion()).thenReturn(version);
+
+        mockMvc.perform(get("/api/appointments").header(HttpHeaders.IF_NONE_MATCH, version.getETag()))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/appointments").param("view", "summary")
+                        .header(HttpHeaders.IF_NONE_MATCH, version.getETag()))
+                .andExpect(status().isNotModified());
+
+        verify(appointmentRepository, never()).findAll();
+        verify(appointmentRepository, never()).findAllSummaries();
+    }
+
+    @Test
+    void shouldNotGetAppointmentSummaryById() throws Exception{
+        long id = 31;
+
+        mockMvc.perform(get("/api/appointments/" + id).param("view", "summary"))
+                .andExpect(status().isNotFound());
+        verify(appointmentRepository).findSummaryById(id);
+        verify(appointmentRepository, never()).findById(id);
+    }
+
+    @Test
+    void shouldStreamAppointmentsAsNdjson() throws Exception{
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(appointmentExportService).writeNdjson(any());
+
+        MvcResult result = mockMvc.perform(get("/api/appointments/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
     @Test
     void shouldGetAppointmentById() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -254,9 +563,10 @@ class AppointmentControllerUnitTest{
         assertThat(opt.get().getId()).isEqualTo(appointment.getId());
         assertThat(appointment.getId()).isEqualTo(1);
 
-        when(appointmentRepository.findById(appointment.getId())).thenReturn(opt);
+        when(appointmentRepository.removeById(appointment.getId())).thenReturn(1);
         mockMvc.perform(delete("/api/appointments/" + appointment.getId()))
                 .andExpect(status().isOk());
+        verify(appointmentRepository, never()).findById(appointment.getId());
                 
     }
 
@@ -272,7 +582,7 @@ class AppointmentControllerUnitTest{
     void shouldDeleteAllAppointments() throws Exception{
         mockMvc.perform(delete("/api/appointments"))
                 .andExpect(status().isOk());
-                
+        verify(bulkDeletionService).deleteAllAppointments();
     }
 }
 
@@ -0,0 +1,110 @@
+package com.example.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentExportService;
+
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({AppointmentExportService.class, JacksonConfiguration.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class AppointmentExportJpaUnitTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    AppointmentExportService exportService;
+
+    @Test
+    void should_export_nothing_if_repository_is_empty() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.writeNdjson(out);
+
+        assertThat(out.toByteArray()).isEmpty();
+    }
+
+    @Test
+    void should_export_one_line_per_appointment_and_detach_them() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        Appointment appointment1 = entityManager.persist(new Appointment(patient, doctor, room,
+                LocalDateTime.of(2023, 4, 24, 19, 0), LocalDateTime.of(2023, 4, 24, 19, 30)));
+        Appointment appointment2 = entityManager.persist(new Appointment(patient, doctor, room,
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 0)));
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.writeNdjson(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"id\":" + appointment1.getId()).contains("\"startsAt\":\"19:00 24/04/2023\"");
+        assertThat(lines[1]).contains("\"id\":" + appointment2.getId()).contains("\"roomName\":\"Dermatology\"");
+
+        // nothing written stays managed
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+        assertThat(session.getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void should_flush_by_chunk_rather_than_by_row() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(new Appointment(patient, doctor, room,
+                    LocalDateTime.of(2023, 4, 24, 19, 0).plusHours(i), LocalDateTime.of(2023, 4, 24, 19, 30).plusHours(i)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        AtomicInteger flushes = new AtomicInteger();
+        OutputStream out = new FilterOutputStream(new ByteArrayOutputStream()) {
+            @Override
+            public void flush() throws IOException {
+                flushes.incrementAndGet();
+                super.flush();
+            }
+        };
+        exportService.writeNdjson(out);
+
+        // fewer rows than a chunk: only the final flush
+        assertThat(flushes).hasValue(1);
+    }
+
+}
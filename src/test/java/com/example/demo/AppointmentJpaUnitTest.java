@@ -1,18 +1,28 @@
 package com.example.demo;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.AppointmentSummary;
 import com.example.demo.entities.*;
 
 
@@ -257,5 +267,175 @@ class AppointmentJpaUnitTest {
         Iterable appointments = repoAppointments.findAll();
         assertThat(appointments).isEmpty();
     }
+
+    @Test
+    void should_find_overlapping_appointment_in_same_room(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 10, 0);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 11, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+        entityManager.persist(new Appointment(patient, doctor, room1, startsAt, finishesAt));
+
+        // partial overlap on either side and full containment
+        assertThat(repoAppointments.existsOverlapping("Dermatology", startsAt.minusMinutes(30), startsAt.plusMinutes(30))).isTrue();
+        assertThat(repoAppointments.existsOverlapping("Dermatology", finishesAt.minusMinutes(30), finishesAt.plusMinutes(30))).isTrue();
+        assertThat(repoAppointments.existsOverlapping("Dermatology", startsAt.minusHours(1), finishesAt.plusHours(1))).isTrue();
+
+        // adjacent slots and other rooms are free
+        assertThat(repoAppointments.existsOverlapping("Dermatology", finishesAt, finishesAt.plusHours(1))).isFalse();
+        assertThat(repoAppointments.existsOverlapping("Dermatology", startsAt.minusHours(1), startsAt)).isFalse();
+        assertThat(repoAppointments.existsOverlapping("Oncology", startsAt, finishesAt)).isFalse();
+    }
+
+    @Test
+    void should_find_overlapping_appointment_of_doctor_and_of_patient(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient otherPatient = new Patient("Paulino", "Antonio", 37, "p.antonio@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Doctor otherDoctor = new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 10, 0);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 11, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(otherPatient);
+        entityManager.persist(doctor);
+        entityManager.persist(otherDoctor);
+        entityManager.persist(room);
+        entityManager.persist(new Appointment(patient, doctor, room, startsAt, finishesAt));
+
+        assertThat(repoAppointments.existsDoctorOverlapping(doctor.getId(), startsAt.minusMinutes(30), startsAt.plusMinutes(30))).isTrue();
+        assertThat(repoAppointments.existsPatientOverlapping(patient.getId(), finishesAt.minusMinutes(30), finishesAt.plusMinutes(30))).isTrue();
+
+        // adjacent slots and other participants are free
+        assertThat(repoAppointments.existsDoctorOverlapping(doctor.getId(), finishesAt, finishesAt.plusHours(1))).isFalse();
+        assertThat(repoAppointments.existsPatientOverlapping(patient.getId(), startsAt.minusHours(1), startsAt)).isFalse();
+        assertThat(repoAppointments.existsDoctorOverlapping(otherDoctor.getId(), startsAt, finishesAt)).isFalse();
+        assertThat(repoAppointments.existsPatientOverlapping(otherPatient.getId(), startsAt, finishesAt)).isFalse();
+    }
+
+    @Test
+    void should_find_appointments_in_range_grouped_by_room_and_doctor(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor1 = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Doctor doctor2 = new Doctor ("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        LocalDateTime monday = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor1);
+        entityManager.persist(doctor2);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+        Appointment late = entityManager.persist(new Appointment(patient, doctor1, room2, monday.plusHours(3), monday.plusHours(4)));
+        Appointment early = entityManager.persist(new Appointment(patient, doctor2, room2, monday.plusHours(1), monday.plusHours(2)));
+        Appointment other = entityManager.persist(new Appointment(patient, doctor1, room1, monday.plusHours(2), monday.plusHours(3)));
+        entityManager.persist(new Appointment(patient, doctor1, room1, monday.plusHours(5), monday.plusHours(6)));
+
+        List<AppointmentSummary> inRooms = repoAppointments.findSummariesOverlappingRooms(
+                Arrays.asList("Dermatology", "Oncology"), monday, monday.plusHours(5));
+        assertThat(inRooms).extracting(AppointmentSummary::getId)
+                .containsExactly(other.getId(), early.getId(), late.getId());
+
+        List<AppointmentSummary> ofDoctor = repoAppointments.findSummariesOfDoctorOverlapping(
+                doctor1.getId(), monday.plusHours(2).plusMinutes(30), monday.plusHours(5));
+        assertThat(ofDoctor).extracting(AppointmentSummary::getId)
+                .containsExactly(other.getId(), late.getId());
+    }
+
+    @Test
+    void should_load_appointments_with_participants_in_one_statement(){
+        assertThat(statementsToLoadAll(3)).isEqualTo(1);
+        assertThat(statementsToLoadAll(12)).isEqualTo(1);
+    }
+
+    @Test
+    void should_load_appointment_page_and_by_id_in_one_statement(){
+        List<Appointment> appointments = persistAppointments(5);
+        Statistics statistics = statistics();
+
+        statistics.clear();
+        Slice<Appointment> page = repoAppointments.findAllBy(PageRequest.of(0, 3, Sort.by("id")));
+        page.forEach(a -> a.getDoctor().getFirstName());
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        entityManager.clear();
+        statistics.clear();
+        Appointment found = repoAppointments.findById(appointments.get(4).getId()).get();
+        found.getPatient().getFirstName();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private long statementsToLoadAll(int appointments){
+        persistAppointments(appointments);
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        List<Appointment> found = repoAppointments.findAll();
+        found.forEach(a -> a.getRoom().getRoomName());
+
+        long statements = statistics.getPrepareStatementCount();
+        repoAppointments.deleteAllInBatch();
+        entityManager.clear();
+        return statements;
+    }
+
+    @Test
+    void should_read_appointment_summaries_without_hydrating_entities(){
+        List<Appointment> appointments = persistAppointments(3);
+        Statistics statistics = statistics();
+
+        statistics.clear();
+        List<AppointmentSummary> summaries = repoAppointments.findAllSummaries();
+        assertThat(summaries).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        Appointment last = appointments.get(2);
+        AppointmentSummary summary = repoAppointments.findSummaryById(last.getId()).get();
+        assertThat(summary.getRoomName()).isEqualTo(last.getRoom().getRoomName());
+        assertThat(summary.getDoctorId()).isEqualTo(last.getDoctor().getId());
+        assertThat(summary.getPatientId()).isEqualTo(last.getPatient().getId());
+        assertThat(summary.getStartsAt()).isEqualTo(last.getStartsAt());
+        assertThat(summary.getFinishesAt()).isEqualTo(last.getFinishesAt());
+
+        Slice<AppointmentSummary> page = repoAppointments.findSummariesByIdGreaterThan(
+                appointments.get(0).getId(), PageRequest.of(0, 1, Sort.by("id")));
+        assertThat(page.getContent()).extracting(AppointmentSummary::getId)
+                .containsExactly(appointments.get(1).getId());
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    private List<Appointment> persistAppointments(int count){
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // distinct participants per row, the worst case for per-association selects
+            Patient patient = entityManager.persist(new Patient("Patient " + i, "Olaya", 37, "p" + i + "@email.com"));
+            Doctor doctor = entityManager.persist(new Doctor("Doctor " + i, "Amalia", 24, "d" + i + "@hospital.accwe"));
+            Room room = entityManager.persist(new Room("Room " + UUID.randomUUID()));
+            LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0).plusHours(i);
+            appointments.add(entityManager.persist(new Appointment(patient, doctor, room, startsAt, startsAt.plusMinutes(30))));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return appointments;
+    }
+
+    private Statistics statistics(){
+        return entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+    }
     
 }
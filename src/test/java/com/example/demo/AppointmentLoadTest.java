@@ -0,0 +1,332 @@
+package com.example.demo;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.repositories.ScheduleReservationRepository;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BookingResult;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays a booking-day mix of requests against the whole application over
+ * HTTP and reports p50/p99/p99.9 latency and throughput per request type.
+ * <p>
+ * The load is an open loop: requests are sent at a fixed rate whatever the
+ * response times, each sender on its own fixed schedule. A response slower
+ * than the sender's interval stands for the requests that would have been
+ * sent meanwhile: latencies are recorded with that expected interval, so a
+ * stall is not hidden by the requests it held back.
+ * <p>
+ * Tagged {@code load}: the regular build skips it, {@code mvn -Pload test}
+ * runs only it. The run is shaped with system properties:
+ * {@code load.rate} (requests per second, 100), {@code load.threads}
+ * (senders, 64), {@code load.seconds} (30), {@code load.warmupSeconds} (5),
+ * {@code load.timeoutSeconds} (10) and {@code load.mix}
+ * ({@code book:30,list:20,byId:40,delete:10}). The full histograms are
+ * written to {@code target/load-test} in HdrHistogram log format.
+ * <p>
+ * It runs on the in-memory database by default. Add
+ * {@code -Dspring.profiles.active=prod -DMYSQL_HOST=127.0.0.1} to run it
+ * against a MySQL started from {@code Dockerfile.mysql} with the production
+ * pool and driver settings.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class AppointmentLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentLoadTest.class);
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2023, 7, 3, 8, 0);
+    private static final int ROOMS = 20;
+    private static final int DOCTORS = 50;
+    private static final int PATIENTS = 1000;
+    private static final int SEEDED_APPOINTMENTS = 5000;
+    // a working week of 30 minute slots from 8:00 to 18:00
+    private static final int SLOTS = 5 * 20;
+
+    private static final int RATE = Integer.getInteger("load.rate", 100);
+    private static final int THREADS = Integer.getInteger("load.threads", 64);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+    private static final int TIMEOUT_SECONDS = Integer.getInteger("load.timeoutSeconds", 10);
+    private static final String MIX = System.getProperty("load.mix", "book:30,list:20,byId:40,delete:10");
+
+    private enum Operation { BOOK, LIST, BY_ID, DELETE }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentBookingService bookingService;
+
+    @Autowired
+    AppointmentScheduleIndex scheduleIndex;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    ScheduleReservationRepository scheduleReservationRepository;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    // per operation: 2xx, 3xx, 4xx, 5xx or no response (including timeouts)
+    private final Map<Operation, AtomicLongArray> statuses = new EnumMap<>(Operation.class);
+    private final List<Long> doctorIds = new ArrayList<>();
+    private final List<Long> patientIds = new ArrayList<>();
+    private final List<Long> appointmentIds = new ArrayList<>();
+    private final Queue<Long> deletable = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        // a request stuck on the server fails its sender instead of halting its schedule
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        requestFactory.setReadTimeout((int) TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        restTemplate.getRestTemplate().setRequestFactory(requestFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        roomRepository.deleteAll();
+        scheduleReservationRepository.deleteAll();
+        scheduleIndex.clear();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void should_serve_booking_day_mix_without_server_errors() throws Exception {
+        seed();
+        Operation[] mix = parseMix(MIX);
+        for (Operation operation : Operation.values()) {
+            // auto-resizing: a latency beyond any preset range is still recorded
+            recorders.put(operation, new Recorder(3));
+            statuses.put(operation, new AtomicLongArray(5));
+        }
+
+        long startsAt = System.nanoTime();
+        long warmupEndsAt = startsAt + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long endsAt = warmupEndsAt + TimeUnit.SECONDS.toNanos(SECONDS);
+        // the senders take turns: together they send RATE requests per second, evenly spaced
+        long interval = TimeUnit.SECONDS.toNanos(THREADS) / RATE;
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            long firstAt = startsAt + TimeUnit.SECONDS.toNanos(i) / RATE;
+            workers.add(executor.submit(() -> {
+                for (long sendAt = firstAt; sendAt < endsAt; sendAt += interval) {
+                    // behind schedule after a slow response: send at once, the histogram makes up for the gap
+                    TimeUnit.NANOSECONDS.sleep(sendAt - System.nanoTime());
+                    run(mix[ThreadLocalRandom.current().nextInt(mix.length)], interval);
+                }
+                return null;
+            }));
+        }
+
+        // drop what was recorded while the JIT and the caches warmed up
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, warmupEndsAt - System.nanoTime()));
+        recorders.values().forEach(Recorder::getIntervalHistogram);
+        for (AtomicLongArray counts : statuses.values()) {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+        report(histograms);
+
+        for (Operation operation : mix) {
+            assertThat(statuses.get(operation).get(3)).as("%s server errors", operation).isZero();
+            assertThat(statuses.get(operation).get(4)).as("%s failed requests", operation).isZero();
+        }
+        if (histograms.get(Operation.BOOK).getTotalCount() > 0) {
+            assertThat(statuses.get(Operation.BOOK).get(0)).as("successful bookings").isPositive();
+        }
+    }
+
+    private void run(Operation operation, long interval) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long startedAt = System.nanoTime();
+        int status;
+        try {
+            status = send(operation, random).getStatusCodeValue();
+        } catch (RuntimeException e) {
+            status = 0;
+        }
+        recorders.get(operation).recordValueWithExpectedInterval(System.nanoTime() - startedAt, interval);
+        statuses.get(operation).incrementAndGet(status == 0 ? 4 : Math.min(3, status / 100 - 2));
+    }
+
+    private ResponseEntity<String> send(Operation operation, ThreadLocalRandom random) {
+        switch (operation) {
+            case BOOK:
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                return restTemplate.exchange("/api/appointment", HttpMethod.POST,
+                        new HttpEntity<>(bookingBody(random), headers), String.class);
+            case LIST:
+                return restTemplate.getForEntity("/api/appointments?page={page}&size=20", String.class,
+                        random.nextInt(SEEDED_APPOINTMENTS / 20));
+            case BY_ID:
+                return restTemplate.getForEntity("/api/appointments/{id}", String.class,
+                        appointmentIds.get(random.nextInt(appointmentIds.size())));
+            default:
+                Long id = deletable.poll();
+                return restTemplate.exchange("/api/appointments/{id}", HttpMethod.DELETE, null, String.class,
+                        id == null ? Long.MAX_VALUE : id);
+        }
+    }
+
+    // a random slot of the week: the busier the run, the more of them answer 406
+    private String bookingBody(ThreadLocalRandom random) {
+        LocalDateTime startsAt = slot(random.nextInt(SLOTS));
+        return "{\"patient\":{\"id\":" + patientIds.get(random.nextInt(PATIENTS)) + "}," +
+                "\"doctor\":{\"id\":" + doctorIds.get(random.nextInt(DOCTORS)) + "}," +
+                "\"room\":{\"roomName\":\"Room " + random.nextInt(ROOMS) + "\"}," +
+                "\"startsAt\":\"" + FORMATTER.format(startsAt) + "\"," +
+                "\"finishesAt\":\"" + FORMATTER.format(startsAt.plusMinutes(30)) + "\"}";
+    }
+
+    private void seed() {
+        for (int i = 0; i < DOCTORS; i++) {
+            doctorIds.add(doctorRepository.save(new Doctor("Doctor " + i, "Amalia", 40, "d" + i + "@hospital.accwe")).getId());
+        }
+        for (int i = 0; i < PATIENTS; i++) {
+            patientIds.add(patientRepository.save(new Patient("Patient " + i, "Olaya", 37, "p" + i + "@email.com")).getId());
+        }
+        // the following weeks fully booked: every room, each with its own doctor, in every slot
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < SEEDED_APPOINTMENTS; i++) {
+            int slot = i / ROOMS;
+            LocalDateTime startsAt = slot(slot % SLOTS).plusWeeks(1 + slot / SLOTS);
+            appointments.add(new Appointment(patient(patientIds.get(i % PATIENTS)),
+                    doctor(doctorIds.get(i % ROOMS)), new Room("Room " + i % ROOMS),
+                    startsAt, startsAt.plusMinutes(30)));
+        }
+        assertThat(bookingService.bookAll(appointments)).isEqualTo(BookingResult.BOOKED);
+        appointments.forEach(appointment -> appointmentIds.add(appointment.getId()));
+        appointmentIds.forEach(deletable::add);
+    }
+
+    private static LocalDateTime slot(int slot) {
+        return MONDAY.plusDays(slot / 20).plusMinutes(30L * (slot % 20));
+    }
+
+    private static Patient patient(long id) {
+        Patient reference = new Patient();
+        reference.setId(id);
+        return reference;
+    }
+
+    private static Doctor doctor(long id) {
+        Doctor reference = new Doctor();
+        reference.setId(id);
+        return reference;
+    }
+
+    private static Operation[] parseMix(String mix) {
+        List<Operation> weighted = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = Operation.valueOf(parts[0].replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+            for (int i = 0; i < Integer.parseInt(parts[1]); i++) {
+                weighted.add(operation);
+            }
+        }
+        return weighted.toArray(new Operation[0]);
+    }
+
+    private void report(Map<Operation, Histogram> histograms) throws FileNotFoundException {
+        File directory = new File("target/load-test");
+        directory.mkdirs();
+        StringBuilder table = new StringBuilder(String.format("%n%-7s %8s %9s %8s %8s %8s %8s %8s %6s %6s %6s %6s%n",
+                "", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "mean ms", "2xx", "3xx", "4xx", "5xx"));
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            AtomicLongArray counts = statuses.get(entry.getKey());
+            // requests actually sent: the histogram also holds the ones a stall held back
+            long requests = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                requests += counts.get(i);
+            }
+            table.append(String.format("%-7s %8d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %6d %6d %6d %6d%n",
+                    entry.getKey(), requests, requests / (double) SECONDS,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+                    histogram.getMean() / 1_000_000, counts.get(0), counts.get(1), counts.get(2), counts.get(3)));
+            try (PrintStream out = new PrintStream(new File(directory, entry.getKey().name().toLowerCase() + ".hlog"))) {
+                new HistogramLogWriter(out).outputIntervalHistogram(histogram);
+            }
+        }
+        log.info("{} req/s over {} senders for {}s, mix {}{}", RATE, THREADS, SECONDS, MIX, table);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks {@link Appointment#overlaps} against a brute-force model on random
+ * appointments: two appointments overlap when some minute is occupied by both
+ * and they share a room or a stored participant. The seeds are fixed, so a
+ * failure names the seed and case that reproduce it.
+ */
+class AppointmentOverlapPropertyTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2023, 7, 4, 8, 0);
+    private static final String[] ROOMS = {"Dentist", "Oncology"};
+    private static final int CASES = 20_000;
+
+    @Test
+    void shouldAgreeWithMinuteByMinuteModel() {
+        for (long seed = 1; seed <= 5; seed++) {
+            Random random = new Random(seed);
+            for (int i = 0; i < CASES; i++) {
+                Appointment a = randomAppointment(random);
+                Appointment b = randomAppointment(random);
+
+                assertThat(a.overlaps(b))
+                        .as("seed %d case %d: %s-%s and %s-%s", seed, i,
+                                a.getStartsAt(), a.getFinishesAt(), b.getStartsAt(), b.getFinishesAt())
+                        .isEqualTo(sharesRoomOrParticipant(a, b) && sharesMinute(a, b));
+            }
+        }
+    }
+
+    @Test
+    void shouldBeSymmetric() {
+        Random random = new Random(42);
+        for (int i = 0; i < CASES; i++) {
+            Appointment a = randomAppointment(random);
+            Appointment b = randomAppointment(random);
+
+            assertThat(a.overlaps(b)).as("case %d", i).isEqualTo(b.overlaps(a));
+        }
+    }
+
+    @Test
+    void shouldOverlapContainedAndNotAdjacentWindows() {
+        Random random = new Random(7);
+        Room room = new Room("Dentist");
+        for (int i = 0; i < CASES; i++) {
+            int start = random.nextInt(600);
+            int length = 2 + random.nextInt(120);
+            Appointment outer = appointment(room, start, start + length);
+            int innerStart = start + random.nextInt(length - 1);
+            Appointment inner = appointment(room, innerStart, innerStart + 1 + random.nextInt(start + length - innerStart));
+            Appointment next = appointment(room, start + length, start + length + 1 + random.nextInt(120));
+
+            assertThat(outer.overlaps(inner)).as("case %d", i).isTrue();
+            assertThat(inner.overlaps(outer)).as("case %d", i).isTrue();
+            assertThat(outer.overlaps(outer)).as("case %d", i).isTrue();
+            assertThat(outer.overlaps(next)).as("case %d", i).isFalse();
+            assertThat(next.overlaps(outer)).as("case %d", i).isFalse();
+        }
+    }
+
+    @Test
+    void shouldNeverOverlapWithoutDates() {
+        Room room = new Room("Dentist");
+        Appointment booked = appointment(room, 0, 600);
+
+        assertThat(booked.overlaps(new Appointment(null, null, room, null, null))).isFalse();
+        assertThat(booked.overlaps(new Appointment(null, null, room, DAY.plusMinutes(30), null))).isFalse();
+        assertThat(booked.overlaps(new Appointment(null, null, room, null, DAY.plusMinutes(30)))).isFalse();
+        assertThat(new Appointment(null, null, room, null, DAY.plusMinutes(30)).overlaps(booked)).isFalse();
+    }
+
+    @Test
+    void shouldFollowDatesChangedAfterConstruction() {
+        Room room = new Room("Dentist");
+        Appointment booked = appointment(room, 0, 30);
+        Appointment moved = appointment(room, 60, 90);
+
+        moved.setStartsAt(DAY.plusMinutes(15));
+
+        assertThat(booked.overlaps(moved)).isTrue();
+        moved.setFinishesAt(DAY.plusMinutes(20));
+        moved.setStartsAt(DAY.plusMinutes(30));
+        assertThat(booked.overlaps(moved)).isFalse();
+    }
+
+    private static Appointment randomAppointment(Random random) {
+        // a short day and few rooms and people, so that every arrangement comes up often
+        int start = random.nextInt(120);
+        int finish = start + random.nextInt(60) - 5;
+        Appointment appointment = appointment(new Room(ROOMS[random.nextInt(ROOMS.length)]), start, finish);
+        Doctor doctor = new Doctor();
+        doctor.setId(random.nextInt(3));
+        Patient patient = new Patient();
+        patient.setId(random.nextInt(3));
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        return appointment;
+    }
+
+    private static Appointment appointment(Room room, int startMinute, int finishMinute) {
+        return new Appointment(null, null, room, DAY.plusMinutes(startMinute), DAY.plusMinutes(finishMinute));
+    }
+
+    private static boolean sharesMinute(Appointment a, Appointment b) {
+        for (LocalDateTime minute = a.getStartsAt(); minute.isBefore(a.getFinishesAt()); minute = minute.plusMinutes(1)) {
+            if (!minute.isBefore(b.getStartsAt()) && minute.isBefore(b.getFinishesAt())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sharesRoomOrParticipant(Appointment a, Appointment b) {
+        return a.getRoom().getRoomName().equals(b.getRoom().getRoomName())
+                || a.getDoctor().getId() > 0 && a.getDoctor().getId() == b.getDoctor().getId()
+                || a.getPatient().getId() > 0 && a.getPatient().getId() == b.getPatient().getId();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Room;
+import com.example.demo.services.AppointmentScheduleIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppointmentScheduleIndexUnitTest {
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+    private AppointmentScheduleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AppointmentScheduleIndex();
+    }
+
+    @Test
+    void shouldNotOverlapForEmptyIndex() {
+        // given
+        Appointment appointment = appointment(1, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023");
+
+        // when
+        // then
+        assertFalse(index.overlaps(appointment));
+    }
+
+    @Test
+    void shouldOverlapForSameRoomIntersectingDates() {
+        // given
+        index.add(appointment(1, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023"));
+
+        // when
+        // then
+        assertTrue(index.overlaps(appointment(0, "Dentist", "10:30 04/07/2023", "11:30 04/07/2023")));
+        assertTrue(index.overlaps(appointment(0, "Dentist", "09:30 04/07/2023", "10:30 04/07/2023")));
+        assertTrue(index.overlaps(appointment(0, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023")));
+        assertTrue(index.overlaps(appointment(0, "Dentist", "10:15 04/07/2023", "10:45 04/07/2023")));
+        assertTrue(index.overlaps(appointment(0, "Dentist", "09:00 04/07/2023", "12:00 04/07/2023")));
+    }
+
+    @Test
+    void shouldNotOverlapForAdjacentDatesOrOtherRooms() {
+        // given
+        index.add(appointment(1, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023"));
+
+        // when
+        // then
+        assertFalse(index.overlaps(appointment(0, "Dentist", "11:00 04/07/2023", "12:00 04/07/2023")));
+        assertFalse(index.overlaps(appointment(0, "Dentist", "09:00 04/07/2023", "10:00 04/07/2023")));
+        assertFalse(index.overlaps(appointment(0, "Oncology", "10:00 04/07/2023", "11:00 04/07/2023")));
+    }
+
+    @Test
+    void shouldFindLongAppointmentStartingWellBefore() {
+        // given
+        index.add(appointment(1, "Dentist", "08:00 04/07/2023", "18:00 04/07/2023"));
+        index.add(appointment(2, "Dentist", "19:00 04/07/2023", "19:15 04/07/2023"));
+
+        // when
+        // then
+        assertTrue(index.overlaps(appointment(0, "Dentist", "17:00 04/07/2023", "17:30 04/07/2023")));
+        assertFalse(index.overlaps(appointment(0, "Dentist", "18:15 04/07/2023", "18:45 04/07/2023")));
+    }
+
+    @Test
+    void shouldForgetRemovedAndClearedAppointments() {
+        // given
+        index.add(appointment(1, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023"));
+        index.add(appointment(2, "Oncology", "10:00 04/07/2023", "11:00 04/07/2023"));
+
+        // when
+        index.remove(1);
+
+        // then
+        assertFalse(index.overlaps(appointment(0, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023")));
+        assertTrue(index.overlaps(appointment(0, "Oncology", "10:00 04/07/2023", "11:00 04/07/2023")));
+
+        // and when
+        index.clear();
+
+        // then
+        assertFalse(index.overlaps(appointment(0, "Oncology", "10:00 04/07/2023", "11:00 04/07/2023")));
+    }
+
+    @Test
+    void shouldMoveAppointmentIndexedTwice() {
+        // given
+        index.add(appointment(1, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023"));
+
+        // when
+        index.add(appointment(1, "Dentist", "15:00 04/07/2023", "16:00 04/07/2023"));
+
+        // then
+        assertFalse(index.overlaps(appointment(0, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023")));
+        assertTrue(index.overlaps(appointment(0, "Dentist", "15:00 04/07/2023", "16:00 04/07/2023")));
+    }
+
+    @Test
+    void shouldIgnoreAppointmentsWithoutRoomOrDates() {
+        // given
+        Appointment incomplete = new Appointment(null, null, null, null, null);
+
+        // when
+        index.add(incomplete);
+
+        // then
+        assertFalse(index.overlaps(incomplete));
+    }
+
+    @Test
+    void shouldIndexSummariesLikeAppointments() {
+        // given
+        index.add(new AppointmentSummary(1, "Dentist", 2L, 3L,
+                LocalDateTime.parse("10:00 04/07/2023", formatter), LocalDateTime.parse("11:00 04/07/2023", formatter)));
+        index.add(new AppointmentSummary(2, null, null, null, null, null));
+
+        // when
+        // then
+        assertTrue(index.overlaps(appointment(0, "Dentist", "10:30 04/07/2023", "11:30 04/07/2023")));
+        assertFalse(index.overlaps(appointment(0, "Dentist", "11:00 04/07/2023", "12:00 04/07/2023")));
+    }
+
+    @Test
+    void shouldOverlapForSameStoredDoctorInAnotherRoom() {
+        // given
+        Doctor doctor = new Doctor();
+        doctor.setId(7);
+        Appointment booked = appointment(1, "Dentist", "10:00 04/07/2023", "11:00 04/07/2023");
+        booked.setDoctor(doctor);
+        index.add(booked);
+        Appointment candidate = appointment(0, "Oncology", "10:30 04/07/2023", "11:30 04/07/2023");
+
+        // when
+        // then
+        assertFalse(index.overlaps(candidate));
+        candidate.setDoctor(doctor);
+        assertTrue(index.overlaps(candidate));
+    }
+
+    private Appointment appointment(long id, String roomName, String startsAt, String finishesAt) {
+        Appointment appointment = new Appointment(null, null, new Room(roomName),
+                LocalDateTime.parse(startsAt, formatter), LocalDateTime.parse(finishesAt, formatter));
+        appointment.setId(id);
+        return appointment;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import com.example.demo.controllers.AvailabilityController;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.services.AvailabilityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AvailabilityController.class)
+class AvailabilityControllerUnitTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2023, 4, 24, 8, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2023, 4, 24, 18, 0);
+
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldGetFreeSlotsOfRequestedRoomsAndDoctor() throws Exception {
+        // given
+        given(availabilityService.findFreeSlots(Arrays.asList("Dentist", "Oncology"), 7L, FROM, TO, Duration.ofMinutes(45)))
+                .willReturn(Optional.of(Collections.singletonList(new FreeSlot("Dentist", FROM, TO))));
+
+        // when
+        // then
+        mockMvc.perform(get("/api/availability")
+                        .param("room", "Dentist", "Oncology")
+                        .param("doctor", "7")
+                        .param("from", "08:00 24/04/2023")
+                        .param("to", "18:00 24/04/2023")
+                        .param("duration", "45"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].roomName", is("Dentist")))
+                .andExpect(jsonPath("$[0].startsAt", is("08:00 24/04/2023")))
+                .andExpect(jsonPath("$[0].finishesAt", is("18:00 24/04/2023")));
+    }
+
+    @Test
+    void shouldSearchEveryRoomForThirtyMinutesByDefault() throws Exception {
+        // given
+        given(availabilityService.findFreeSlots(any(), any(), any(), any(), any())).willReturn(Optional.of(Collections.emptyList()));
+
+        // when
+        // then
+        mockMvc.perform(get("/api/availability")
+                        .param("from", "08:00 24/04/2023")
+                        .param("to", "18:00 24/04/2023"))
+                .andExpect(status().isNoContent());
+        then(availabilityService).should().findFreeSlots(Collections.emptyList(), null, FROM, TO, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void shouldNotFindAvailabilityOfUnknownRoom() throws Exception {
+        // given
+        given(availabilityService.findFreeSlots(any(), any(), any(), any(), any())).willReturn(Optional.empty());
+
+        // when
+        // then
+        mockMvc.perform(get("/api/availability")
+                        .param("room", "Podiatry")
+                        .param("from", "08:00 24/04/2023")
+                        .param("to", "18:00 24/04/2023"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRejectInvalidRanges() throws Exception {
+        // given
+        // when
+        // then
+        mockMvc.perform(get("/api/availability")
+                        .param("from", "18:00 24/04/2023")
+                        .param("to", "08:00 24/04/2023"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/availability")
+                        .param("from", "08:00 24/04/2023")
+                        .param("to", "08:00 24/06/2023"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/availability")
+                        .param("from", "08:00 24/04/2023")
+                        .param("to", "18:00 24/04/2023")
+                        .param("duration", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/availability")
+                        .param("from", "08:00 24/04/2023"))
+                .andExpect(status().isBadRequest());
+        then(availabilityService).should(never()).findFreeSlots(any(), any(), any(), any(), any());
+    }
+}
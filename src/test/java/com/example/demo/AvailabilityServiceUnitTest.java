@@ -0,0 +1,175 @@
+package com.example.demo;
+
+import com.example.demo.dto.AppointmentSummary;
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AvailabilityService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityServiceUnitTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2023, 7, 3, 8, 0);
+    private static final LocalDateTime EVENING = MONDAY.withHour(18);
+
+    private AppointmentRepository appointmentRepository;
+    private RoomRepository roomRepository;
+    private AvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        roomRepository = mock(RoomRepository.class);
+
+        availabilityService = new AvailabilityService();
+        ReflectionTestUtils.setField(availabilityService, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(availabilityService, "roomRepository", roomRepository);
+
+        // every requested room exists unless a test says otherwise
+        when(roomRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Room> rooms = new ArrayList<>();
+            invocation.<Iterable<String>>getArgument(0).forEach(roomName -> rooms.add(new Room(roomName)));
+            return rooms;
+        });
+    }
+
+    @Test
+    void shouldReturnWholeRangeForRoomWithoutAppointments() {
+        // given
+        // when
+        List<FreeSlot> slots = availabilityService.findFreeSlots(Collections.singletonList("Dentist"), null,
+                MONDAY, EVENING, Duration.ofMinutes(30)).get();
+
+        // then
+        assertThat(slots).extracting(FreeSlot::getRoomName, FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactly(tuple("Dentist", MONDAY, EVENING));
+    }
+
+    @Test
+    void shouldReturnGapsBetweenAppointmentsClippedToRange() {
+        // given
+        when(appointmentRepository.findSummariesOverlappingRooms(any(), any(), any())).thenReturn(Arrays.asList(
+                booked(1, "Dentist", 1L, MONDAY.minusHours(1), MONDAY.plusHours(1)),
+                booked(2, "Dentist", 1L, MONDAY.plusHours(2), MONDAY.plusHours(3)),
+                // adjacent: no gap between the two
+                booked(3, "Dentist", 1L, MONDAY.plusHours(3), MONDAY.plusHours(4)),
+                booked(4, "Dentist", 1L, EVENING.minusHours(1), EVENING.plusHours(1))));
+
+        // when
+        List<FreeSlot> slots = availabilityService.findFreeSlots(Collections.singletonList("Dentist"), null,
+                MONDAY, EVENING, Duration.ofMinutes(30)).get();
+
+        // then
+        assertThat(slots).extracting(FreeSlot::getStartsAt, FreeSlot::getFinishesAt).containsExactly(
+                tuple(MONDAY.plusHours(1), MONDAY.plusHours(2)),
+                tuple(MONDAY.plusHours(4), EVENING.minusHours(1)));
+    }
+
+    @Test
+    void shouldSkipGapsShorterThanDuration() {
+        // given
+        when(appointmentRepository.findSummariesOverlappingRooms(any(), any(), any())).thenReturn(Arrays.asList(
+                booked(1, "Dentist", 1L, MONDAY, MONDAY.plusHours(1)),
+                booked(2, "Dentist", 1L, MONDAY.plusHours(1).plusMinutes(20), EVENING)));
+
+        // when
+        List<FreeSlot> slots = availabilityService.findFreeSlots(Collections.singletonList("Dentist"), null,
+                MONDAY, EVENING, Duration.ofMinutes(30)).get();
+
+        // then
+        assertThat(slots).isEmpty();
+    }
+
+    @Test
+    void shouldBlockTimesWhenDoctorIsBusyInAnotherRoom() {
+        // given
+        when(appointmentRepository.findSummariesOverlappingRooms(any(), any(), any())).thenReturn(Arrays.asList(
+                booked(1, "Dentist", 1L, MONDAY.plusHours(1), MONDAY.plusHours(2)),
+                booked(2, "Oncology", 2L, MONDAY.plusHours(4), MONDAY.plusHours(5))));
+        when(appointmentRepository.findSummariesOfDoctorOverlapping(2L, MONDAY, EVENING)).thenReturn(Arrays.asList(
+                booked(3, "Cardiology", 2L, MONDAY.plusMinutes(30), MONDAY.plusHours(3)),
+                booked(2, "Oncology", 2L, MONDAY.plusHours(4), MONDAY.plusHours(5))));
+
+        // when
+        List<FreeSlot> slots = availabilityService.findFreeSlots(Arrays.asList("Oncology", "Dentist"), 2L,
+                MONDAY, EVENING, Duration.ofMinutes(30)).get();
+
+        // then
+        assertThat(slots).extracting(FreeSlot::getRoomName, FreeSlot::getStartsAt, FreeSlot::getFinishesAt).containsExactly(
+                tuple("Dentist", MONDAY, MONDAY.plusMinutes(30)),
+                tuple("Dentist", MONDAY.plusHours(3), MONDAY.plusHours(4)),
+                tuple("Dentist", MONDAY.plusHours(5), EVENING),
+                tuple("Oncology", MONDAY, MONDAY.plusMinutes(30)),
+                tuple("Oncology", MONDAY.plusHours(3), MONDAY.plusHours(4)),
+                tuple("Oncology", MONDAY.plusHours(5), EVENING));
+    }
+
+    @Test
+    void shouldSearchEveryRoomWhenNoneIsGiven() {
+        // given
+        when(roomRepository.findAll()).thenReturn(Arrays.asList(new Room("Oncology"), new Room("Dentist")));
+
+        // when
+        List<FreeSlot> slots = availabilityService.findFreeSlots(Collections.emptyList(), null,
+                MONDAY, EVENING, Duration.ofMinutes(30)).get();
+
+        // then
+        assertThat(slots).extracting(FreeSlot::getRoomName).containsExactly("Dentist", "Oncology");
+        verify(appointmentRepository, never()).findSummariesOfDoctorOverlapping(any(Long.class), any(), any());
+    }
+
+    @Test
+    void shouldKeySlotsByStoredRoomName() {
+        // given
+        // the database matched the name ignoring case
+        doReturn(Collections.singletonList(new Room("Dermatology"))).when(roomRepository).findAllById(any());
+        when(appointmentRepository.findSummariesOverlappingRooms(any(), any(), any())).thenReturn(Collections.singletonList(
+                booked(1, "Dermatology", 1L, MONDAY, MONDAY.plusHours(1))));
+
+        // when
+        List<FreeSlot> slots = availabilityService.findFreeSlots(Collections.singletonList("dermatology"), null,
+                MONDAY, EVENING, Duration.ofMinutes(30)).get();
+
+        // then
+        assertThat(slots).extracting(FreeSlot::getRoomName, FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactly(tuple("Dermatology", MONDAY.plusHours(1), EVENING));
+    }
+
+    @Test
+    void shouldNotFindSlotsOfUnknownRoom() {
+        // given
+        doReturn(Collections.singletonList(new Room("Dentist"))).when(roomRepository).findAllById(any());
+
+        // when
+        Optional<List<FreeSlot>> slots = availabilityService.findFreeSlots(Arrays.asList("Dentist", "Podiatry"), null,
+                MONDAY, EVENING, Duration.ofMinutes(30));
+
+        // then
+        assertThat(slots).isEmpty();
+        verify(appointmentRepository, never()).findSummariesOverlappingRooms(any(), any(), any());
+    }
+
+    private AppointmentSummary booked(long id, String roomName, Long doctorId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return new AppointmentSummary(id, roomName, doctorId, 1L, startsAt, finishesAt);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.example.demo.services.BulkDeletionService;
+
+
+// Not a @DataJpaTest: every id range is deleted in a transaction of its own.
+@SpringBootTest(properties = "bulk-delete.chunk-size=3")
+class BulkDeletionJpaUnitTest {
+
+    private static final int ROWS = 10;
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BulkDeletionService bulkDeletionService;
+
+    @Autowired
+    AppointmentScheduleIndex scheduleIndex;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @BeforeEach
+    void setUp() {
+        Room room = roomRepository.save(new Room("Dermatology"));
+        for (int i = 0; i < ROWS; i++) {
+            Patient patient = patientRepository.save(new Patient("Patient " + i, "Olaya", 37, "p" + i + "@email.com"));
+            Doctor doctor = doctorRepository.save(new Doctor("Doctor " + i, "Amalia", 24, "d" + i + "@hospital.accwe"));
+            LocalDateTime startsAt = MONDAY.plusMinutes(30L * i);
+            Appointment appointment = appointmentRepository.save(new Appointment(patient, doctor, room,
+                    startsAt, startsAt.plusMinutes(30)));
+            scheduleIndex.add(appointment);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAllInBatch();
+        patientRepository.deleteAllInBatch();
+        doctorRepository.deleteAllInBatch();
+        roomRepository.deleteAllInBatch();
+        scheduleIndex.clear();
+    }
+
+    @Test
+    void should_delete_all_appointments_in_chunks_without_loading_them(){
+        Statistics statistics = statistics();
+
+        statistics.clear();
+        long deleted = bulkDeletionService.deleteAllAppointments();
+
+        assertThat(deleted).isEqualTo(ROWS);
+        assertThat(appointmentRepository.count()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getSuccessfulTransactionCount()).isGreaterThanOrEqualTo(ROWS / 3);
+        assertThat(patientRepository.count()).isEqualTo(ROWS);
+    }
+
+    @Test
+    void should_delete_appointments_of_doctors_first(){
+        long deleted = bulkDeletionService.deleteAllDoctors();
+
+        assertThat(deleted).isEqualTo(ROWS);
+        assertThat(doctorRepository.count()).isZero();
+        assertThat(appointmentRepository.count()).isZero();
+        assertThat(patientRepository.count()).isEqualTo(ROWS);
+        assertThat(scheduleIndex.overlaps(new Appointment(null, null, new Room("Dermatology"),
+                MONDAY, MONDAY.plusMinutes(30)))).isFalse();
+    }
+
+    @Test
+    void should_delete_appointments_of_patients_first(){
+        long deleted = bulkDeletionService.deleteAllPatients();
+
+        assertThat(deleted).isEqualTo(ROWS);
+        assertThat(patientRepository.count()).isZero();
+        assertThat(appointmentRepository.count()).isZero();
+        assertThat(doctorRepository.count()).isEqualTo(ROWS);
+        assertThat(scheduleIndex.overlaps(new Appointment(null, null, new Room("Dermatology"),
+                MONDAY, MONDAY.plusMinutes(30)))).isFalse();
+    }
+
+    @Test
+    void should_only_unschedule_the_deleted_doctors(){
+        // a slot booked on this node whose doctor is outside the deleted range
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(Long.MAX_VALUE);
+        Appointment appointment = new Appointment(new Patient(), doctor, new Room("Oncology"),
+                MONDAY, MONDAY.plusMinutes(30));
+        appointment.setId(Long.MAX_VALUE);
+        scheduleIndex.add(appointment);
+
+        bulkDeletionService.deleteAllDoctors();
+
+        assertThat(scheduleIndex.overlaps(new Appointment(null, null, new Room("Oncology"),
+                MONDAY, MONDAY.plusMinutes(30)))).isTrue();
+    }
+
+    @Test
+    void should_delete_appointments_of_rooms_first(){
+        long deleted = bulkDeletionService.deleteAllRooms();
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(roomRepository.count()).isZero();
+        assertThat(appointmentRepository.count()).isZero();
+    }
+
+    private Statistics statistics(){
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.config.CacheConfiguration;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.RoomRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+
+// Not a @WebMvcTest: the cache proxies and their metrics only exist in the full context.
+@SpringBootTest
+@AutoConfigureMockMvc
+class ByIdResponseCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @AfterEach
+    void tearDown() {
+        doctorRepository.deleteAll();
+        roomRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void should_serve_repeated_get_by_id_from_cache() throws Exception{
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        double hits = gets(CacheConfiguration.DOCTOR_BY_ID, "hit");
+
+        mockMvc.perform(get("/api/doctors/" + doctor.getId())).andExpect(status().isOk());
+        doctorRepository.deleteById(doctor.getId());
+
+        // still answered from the cache: the repository was bypassed
+        mockMvc.perform(get("/api/doctors/" + doctor.getId())).andExpect(status().isOk());
+        assertThat(gets(CacheConfiguration.DOCTOR_BY_ID, "hit")).isEqualTo(hits + 1);
+    }
+
+    @Test
+    void should_evict_deleted_room_and_never_cache_not_found() throws Exception{
+        mockMvc.perform(get("/api/rooms/Dermatology")).andExpect(status().isNotFound());
+        assertThat(cacheManager.getCache(CacheConfiguration.ROOM_BY_NAME).get("Dermatology")).isNull();
+        roomRepository.save(new Room("Dermatology"));
+
+        mockMvc.perform(get("/api/rooms/Dermatology")).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/rooms/Dermatology")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/rooms/Dermatology")).andExpect(status().isNotFound());
+    }
+
+    private double gets(String cacheName, String result){
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", result).functionCounter().count();
+    }
+
+}
@@ -3,6 +3,8 @@ package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -89,6 +91,31 @@ class DoctorJpaUnitTest {
         assertThat(doctors).hasSize(2).contains(doc1, doc3);
     }
 
+    @Test
+    void should_remove_doctor_and_report_affected_rows(){
+        Doctor doc1 = new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe");
+        Doctor doc2 = new Doctor("Cornelio","Andrea", 59, "c.andrea@hospital.accwe");
+
+        entityManager.persist(doc1);
+        entityManager.persist(doc2);
+        entityManager.flush();
+
+        assertThat(repository.removeById(doc2.getId())).isEqualTo(1);
+        assertThat(repository.removeById(doc2.getId())).isZero();
+
+        entityManager.clear();
+        List<Doctor> doctors = repository.findAll();
+
+        assertThat(doctors).extracting(Doctor::getId).containsExactly(doc1.getId());
+    }
+
+    @Test
+    void should_set_last_modified_on_insert(){
+        Doctor doc = entityManager.persist(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+
+        assertThat(doc.getLastModified()).isNotNull();
+    }
+
     @Test
     void should_delete_all_doctors(){
         Doctor doc1 = new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe");
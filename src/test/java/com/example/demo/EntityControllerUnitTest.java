@@ -3,30 +3,49 @@ package com.example.demo;
 import com.example.demo.controllers.DoctorController;
 import com.example.demo.controllers.PatientController;
 import com.example.demo.controllers.RoomController;
+import com.example.demo.dto.TableVersion;
 import com.example.demo.entities.Doctor;
 import com.example.demo.entities.Patient;
 import com.example.demo.entities.Room;
 import com.example.demo.repositories.DoctorRepository;
 import com.example.demo.repositories.PatientRepository;
 import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.BulkDeletionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static java.lang.Math.toIntExact;
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -36,12 +55,20 @@ class DoctorControllerUnitTest {
     @MockBean
     private DoctorRepository doctorRepository;
 
+    @MockBean
+    private BulkDeletionService bulkDeletionService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void setUp() {
+        given(doctorRepository.findTableVersion()).willReturn(new TableVersion(0L, null));
+    }
+
     @Test
     void shouldCreateDoctor() throws Exception {
         // given
@@ -117,7 +144,7 @@ class DoctorControllerUnitTest {
         doctors.add(doctor1);
         doctors.add(doctor2);
 
-        given(doctorRepository.findAll()).willReturn(doctors);
+        given(doctorRepository.findAllAtVersion(0L)).willReturn(doctors);
 
         // when
         ResultActions resultActions = mockMvc.perform(get(GET_ALL_DOCTORS_URI));
@@ -129,13 +156,41 @@ class DoctorControllerUnitTest {
                 .andExpect(jsonPath("$.size()", is(doctors.size())));
     }
 
+    @Test
+    void shouldGetDoctorsAfterCursorWithNextLink() throws Exception {
+        // given
+        String GET_ALL_DOCTORS_URI = "/api/doctors?after={after}&size={size}";
+        Doctor doctor1 = new Doctor("Héctor", "Cortez", 31, "h.cortez@email.com");
+        Doctor doctor2 = new Doctor("Francisco", "Orieta", 18, "f.orieta@email.com");
+        doctor1.setId(11L);
+        doctor2.setId(12L);
+
+        List<Doctor> doctors = new ArrayList<>();
+        doctors.add(doctor1);
+        doctors.add(doctor2);
+
+        given(doctorRepository.findByIdGreaterThan(eq(10L), any(Pageable.class)))
+                .willReturn(new SliceImpl<>(doctors, PageRequest.of(0, 2), true));
+
+        // when
+        ResultActions resultActions = mockMvc.perform(get(GET_ALL_DOCTORS_URI, 10, 2));
+
+        // then
+        resultActions
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(doctors.size())))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=12")))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+    }
+
     @Test
     void shouldNotGetDoctors() throws Exception {
         // given
         String GET_ALL_DOCTORS_URI = "/api/doctors";
         List<Doctor> EMPTY_DOCTOR_LIST = new ArrayList<>();
 
-        given(doctorRepository.findAll()).willReturn(EMPTY_DOCTOR_LIST);
+        given(doctorRepository.findAllAtVersion(0L)).willReturn(EMPTY_DOCTOR_LIST);
 
         // when
         ResultActions resultActions = mockMvc.perform(get(GET_ALL_DOCTORS_URI));
@@ -147,15 +202,98 @@ class DoctorControllerUnitTest {
     }
 
     @Test
-    void shouldDeleteDoctorById() throws Exception {
+    void shouldNotReadDoctorsWhenTableIsUnchanged() throws Exception {
         // given
-        String DELETE_DOCTOR_BY_ID_URI = "/api/doctors/{id}";
-        long DOCTOR_ID = 3L;
+        String GET_ALL_DOCTORS_URI = "/api/doctors";
+        TableVersion version = new TableVersion(2L, Instant.parse("2023-04-24T08:00:00Z"));
+
+        given(doctorRepository.findTableVersion()).willReturn(version);
+
+        // when
+        ResultActions resultActions = mockMvc.perform(get(GET_ALL_DOCTORS_URI)
+                .header(HttpHeaders.IF_NONE_MATCH, version.getETag()));
+
+        // then
+        resultActions
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, version.getETag()))
+                .andExpect(content().string(""));
+        then(doctorRepository).should(never()).findAllAtVersion(anyLong());
+    }
+
+    @Test
+    void shouldGetDoctorsWhenTableHasChanged() throws Exception {
+        // given
+        String GET_ALL_DOCTORS_URI = "/api/doctors";
+        Doctor doctor = new Doctor("Héctor", "Cortez", 31, "h.cortez@email.com");
+        TableVersion version = new TableVersion(1L, Instant.parse("2023-04-24T08:00:00Z"));
+
+        given(doctorRepository.findTableVersion()).willReturn(version);
+        given(doctorRepository.findAllAtVersion(1L)).willReturn(Collections.singletonList(doctor));
+
+        // when
+        ResultActions resultActions = mockMvc.perform(get(GET_ALL_DOCTORS_URI)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\""));
+
+        // then
+        resultActions
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, version.getETag()))
+                .andExpect(jsonPath("$.size()", is(1)));
+    }
+
+    @Test
+    void shouldNotReadDoctorsUnmodifiedSinceClientCopy() throws Exception {
+        // given
+        String GET_ALL_DOCTORS_URI = "/api/doctors";
+        TableVersion version = new TableVersion(2L, Instant.parse("2023-04-24T08:00:00Z"));
+
+        given(doctorRepository.findTableVersion()).willReturn(version);
+
+        // when
+        ResultActions resultActions = mockMvc.perform(get(GET_ALL_DOCTORS_URI)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 24 Apr 2023 08:00:00 GMT"));
+
+        // then
+        resultActions
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        then(doctorRepository).should(never()).findAllAtVersion(anyLong());
+    }
+
+    @Test
+    void shouldNotSendUnmodifiedDoctorAgain() throws Exception {
+        // given
+        String GET_DOCTOR_BY_ID_URI = "/api/doctors/{id}";
+        long DOCTOR_ID = 1L;
         Doctor doctor = new Doctor("Héctor", "Cortez", 31, "h.cortez@email.com");
         doctor.setId(DOCTOR_ID);
+        ReflectionTestUtils.setField(doctor, "lastModified", Instant.parse("2023-04-24T08:00:00Z"));
 
         given(doctorRepository.findById(DOCTOR_ID)).willReturn(Optional.of(doctor));
 
+        // when
+        ResultActions resultActions = mockMvc.perform(get(GET_DOCTOR_BY_ID_URI, DOCTOR_ID)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 24 Apr 2023 08:00:00 GMT"));
+
+        // then
+        resultActions
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void shouldDeleteDoctorById() throws Exception {
+        // given
+        String DELETE_DOCTOR_BY_ID_URI = "/api/doctors/{id}";
+        long DOCTOR_ID = 3L;
+
+        given(doctorRepository.removeById(DOCTOR_ID)).willReturn(1);
+
         // when
         ResultActions resultActions = mockMvc.perform(delete(DELETE_DOCTOR_BY_ID_URI, DOCTOR_ID));
 
@@ -171,7 +309,7 @@ class DoctorControllerUnitTest {
         String DELETE_DOCTOR_BY_ID_URI = "/api/doctors/{id}";
         long DOCTOR_ID = 8L;
 
-        given(doctorRepository.findById(DOCTOR_ID)).willReturn(Optional.empty());
+        given(doctorRepository.removeById(DOCTOR_ID)).willReturn(0);
 
         // when
         ResultActions resultActions = mockMvc.perform(delete(DELETE_DOCTOR_BY_ID_URI, DOCTOR_ID));
@@ -194,6 +332,7 @@ class DoctorControllerUnitTest {
         resultActions
                 .andDo(print())
                 .andExpect(status().isOk());
+        then(bulkDeletionService).should().deleteAllDoctors();
     }
 }
 
@@ -204,12 +343,20 @@ class PatientControllerUnitTest {
     @MockBean
     private PatientRepository patientRepository;
 
+    @MockBean
+    private BulkDeletionService bulkDeletionService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void setUp() {
+        given(patientRepository.findTableVersion()).willReturn(new TableVersion(0L, null));
+    }
+
     @Test
     void shouldCreatePatient() throws Exception {
         // given
@@ -320,10 +467,8 @@ class PatientControllerUnitTest {
         // given
         String DELETE_PATIENT_BY_ID_URI = "/api/patients/{id}";
         long PATIENT_ID = 3L;
-        Patient patient = new Patient("Héctor", "Cortez", 31, "h.cortez@email.com");
-        patient.setId(PATIENT_ID);
 
-        given(patientRepository.findById(PATIENT_ID)).willReturn(Optional.of(patient));
+        given(patientRepository.removeById(PATIENT_ID)).willReturn(1);
 
         // when
         ResultActions resultActions = mockMvc.perform(delete(DELETE_PATIENT_BY_ID_URI, PATIENT_ID));
@@ -340,7 +485,7 @@ class PatientControllerUnitTest {
         String DELETE_PATIENT_BY_ID_URI = "/api/patients/{id}";
         long PATIENT_ID = 8L;
 
-        given(patientRepository.findById(PATIENT_ID)).willReturn(Optional.empty());
+        given(patientRepository.removeById(PATIENT_ID)).willReturn(0);
 
         // when
         ResultActions resultActions = mockMvc.perform(delete(DELETE_PATIENT_BY_ID_URI, PATIENT_ID));
@@ -363,6 +508,7 @@ class PatientControllerUnitTest {
         resultActions
                 .andDo(print())
                 .andExpect(status().isOk());
+        then(bulkDeletionService).should().deleteAllPatients();
     }
 }
 
@@ -372,12 +518,20 @@ class RoomControllerUnitTest {
     @MockBean
     private RoomRepository roomRepository;
 
+    @MockBean
+    private BulkDeletionService bulkDeletionService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void setUp() {
+        given(roomRepository.findTableVersion()).willReturn(new TableVersion(0L, null));
+    }
+
     @Test
     void shouldCreateRoom() throws Exception {
         // given
@@ -403,7 +557,7 @@ class RoomControllerUnitTest {
         String ROOM_NAME = "Dermatology";
         Room room = new Room(ROOM_NAME);
 
-        given(roomRepository.findByRoomName(ROOM_NAME)).willReturn(Optional.of(room));
+        given(roomRepository.findById(ROOM_NAME)).willReturn(Optional.of(room));
 
         // when
         ResultActions resultActions = mockMvc.perform(get(GET_ROOM_BY_NAME_URI, ROOM_NAME));
@@ -421,7 +575,7 @@ class RoomControllerUnitTest {
         String GET_ROOM_BY_NAME_URI = "/api/rooms/{roomName}";
         String ROOM_NAME = "Invalid";
 
-        given(roomRepository.findByRoomName(ROOM_NAME)).willReturn(Optional.empty());
+        given(roomRepository.findById(ROOM_NAME)).willReturn(Optional.empty());
 
         // when
         ResultActions resultActions = mockMvc.perform(get(GET_ROOM_BY_NAME_URI, ROOM_NAME));
@@ -443,7 +597,7 @@ class RoomControllerUnitTest {
         rooms.add(room1);
         rooms.add(room2);
 
-        given(roomRepository.findAll()).willReturn(rooms);
+        given(roomRepository.findAllAtVersion(0L)).willReturn(rooms);
 
         // when
         ResultActions resultActions = mockMvc.perform(get(GET_ALL_ROOMS_URI));
@@ -455,13 +609,34 @@ class RoomControllerUnitTest {
                 .andExpect(jsonPath("$.size()", is(rooms.size())));
     }
 
+    @Test
+    void shouldGetLastRoomsPageWithoutNextLink() throws Exception {
+        // given
+        String GET_ALL_ROOMS_URI = "/api/rooms?page={page}&size={size}";
+        List<Room> rooms = new ArrayList<>();
+        rooms.add(new Room("Dermatology"));
+
+        given(roomRepository.findAllAtVersion(0L, PageRequest.of(1, 2, Sort.by("roomName"))))
+                .willReturn(new SliceImpl<>(rooms, PageRequest.of(1, 2), false));
+
+        // when
+        ResultActions resultActions = mockMvc.perform(get(GET_ALL_ROOMS_URI, 1, 2));
+
+        // then
+        resultActions
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(rooms.size())))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
     @Test
     void shouldNotGetRooms() throws Exception {
         // given
         String GET_ALL_ROOMS_URI = "/api/rooms";
         List<Room> emptyRoomList = new ArrayList<>();
 
-        given(roomRepository.findAll()).willReturn(emptyRoomList);
+        given(roomRepository.findAllAtVersion(0L)).willReturn(emptyRoomList);
 
         // when
         ResultActions resultActions = mockMvc.perform(get(GET_ALL_ROOMS_URI));
@@ -477,9 +652,8 @@ class RoomControllerUnitTest {
         // given
         String DELETE_ROOM_BY_NAME_URI = "/api/rooms/{roomName}";
         String ROOM_NAME = "Dermatology";
-        Room room = new Room(ROOM_NAME);
 
-        given(roomRepository.findByRoomName(ROOM_NAME)).willReturn(Optional.of(room));
+        given(roomRepository.removeByRoomName(ROOM_NAME)).willReturn(1);
 
         // when
         ResultActions resultActions = mockMvc.perform(delete(DELETE_ROOM_BY_NAME_URI, ROOM_NAME));
@@ -496,7 +670,7 @@ class RoomControllerUnitTest {
         String DELETE_ROOM_BY_NAME_URI = "/api/rooms/{roomName}";
         String ROOM_NAME = "Dermatology";
 
-        given(roomRepository.findByRoomName(ROOM_NAME)).willReturn(Optional.empty());
+        given(roomRepository.removeByRoomName(ROOM_NAME)).willReturn(0);
 
         // when
         ResultActions resultActions = mockMvc.perform(delete(DELETE_ROOM_BY_NAME_URI, ROOM_NAME));
@@ -519,5 +693,6 @@ class RoomControllerUnitTest {
         resultActions
                 .andDo(print())
                 .andExpect(status().isOk());
+        then(bulkDeletionService).should().deleteAllRooms();
     }
 }
@@ -4,6 +4,7 @@ import com.example.demo.entities.Appointment;
 import com.example.demo.entities.Doctor;
 import com.example.demo.entities.Patient;
 import com.example.demo.entities.Room;
+import org.hibernate.proxy.HibernateProxy;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -69,9 +70,9 @@ class EntityUnitTest {
         assertThat(appointmentOne).isInstanceOf(Appointment.class);
         assertThat(appointmentOne).hasNoNullFieldsOrProperties();
 
-        assertThat(appointmentOne.getPatient()).hasNoNullFieldsOrProperties();
-        assertThat(appointmentOne.getDoctor()).hasNoNullFieldsOrProperties();
-        assertThat(appointmentOne.getRoom()).hasNoNullFieldsOrProperties();
+        assertThat(appointmentOne.getPatient()).hasNoNullFieldsOrPropertiesExcept("lastModified");
+        assertThat(appointmentOne.getDoctor()).hasNoNullFieldsOrPropertiesExcept("lastModified");
+        assertThat(appointmentOne.getRoom()).hasNoNullFieldsOrPropertiesExcept("lastModified");
 
         assertNotNull(appointmentOne.getStartsAt());
         assertNotNull(appointmentOne.getFinishesAt());
@@ -87,7 +88,7 @@ class EntityUnitTest {
 
         // then
         assertThat(appointmentOne).isInstanceOf(Appointment.class);
-        assertThat(appointmentOne).hasAllNullFieldsOrPropertiesExcept("id");
+        assertThat(appointmentOne).hasAllNullFieldsOrPropertiesExcept("id", "lastModified");
     }
 
     @Test
@@ -168,7 +169,7 @@ class EntityUnitTest {
         appointmentTree = entityManager.persist(appointmentTree);
 
         // then
-        assertThat(appointmentTree).hasAllNullFieldsOrPropertiesExcept("id");
+        assertThat(appointmentTree).hasAllNullFieldsOrPropertiesExcept("id", "lastModified");
 
         assertNull(appointmentTree.getPatient());
         assertNull(appointmentTree.getDoctor());
@@ -203,6 +204,26 @@ class EntityUnitTest {
         assertFalse(overlaps);
     }
 
+    @Test
+    void shouldOverlapsThroughLazyReference() {
+        // given
+        room = entityManager.persist(new Room("Dentist"));
+        appointmentOne = entityManager.persist(new Appointment(null, null, room,
+                LocalDateTime.parse("10:00 04/07/2023", formatter), LocalDateTime.parse("11:00 04/07/2023", formatter)));
+        entityManager.flush();
+        entityManager.clear();
+        Appointment reference = entityManager.getEntityManager().getReference(Appointment.class, appointmentOne.getId());
+
+        appointmentTwo = new Appointment(null, null, new Room("Dentist"),
+                LocalDateTime.parse("09:00 04/07/2023", formatter), LocalDateTime.parse("12:00 04/07/2023", formatter));
+
+        // when
+        // then
+        assertThat(reference).isInstanceOf(HibernateProxy.class);
+        assertTrue(reference.overlaps(appointmentTwo));
+        assertTrue(appointmentTwo.overlaps(reference));
+    }
+
     @Test
     void shouldNotOverlapsForSameAppointmentRoomDifferentDates() {
         // given
@@ -370,7 +391,7 @@ class EntityUnitTest {
 
         // then
         assertThat(doctor).isInstanceOf(Doctor.class);
-        assertThat(doctor).hasAllNullFieldsOrPropertiesExcept("id", "age");
+        assertThat(doctor).hasAllNullFieldsOrPropertiesExcept("id", "age", "lastModified");
 
         assertNull(doctor.getFirstName());
         assertNull(doctor.getLastName());
@@ -441,7 +462,7 @@ class EntityUnitTest {
 
         // then
         assertThat(doctor).isInstanceOf(Doctor.class);
-        assertThat(doctor).hasAllNullFieldsOrPropertiesExcept("id", "age");
+        assertThat(doctor).hasAllNullFieldsOrPropertiesExcept("id", "age", "lastModified");
     }
 
     @Test
@@ -502,7 +523,7 @@ class EntityUnitTest {
 
         // then
         assertThat(patient).isInstanceOf(Patient.class);
-        assertThat(patient).hasAllNullFieldsOrPropertiesExcept("id", "age");
+        assertThat(patient).hasAllNullFieldsOrPropertiesExcept("id", "age", "lastModified");
     }
 
     @Test
@@ -585,7 +606,7 @@ class EntityUnitTest {
 
         // then
         assertThat(patient).isInstanceOf(Patient.class);
-        assertThat(patient).hasAllNullFieldsOrPropertiesExcept("id", "age");
+        assertThat(patient).hasAllNullFieldsOrPropertiesExcept("id", "age", "lastModified");
 
         assertNull(patient.getFirstName());
         assertNull(patient.getLastName());
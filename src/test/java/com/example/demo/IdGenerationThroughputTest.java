@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entities.Patient;
+import com.example.demo.repositories.PatientRepository;
+
+
+/**
+ * Inserts patients the way a bulk import does and reports rows per second and
+ * JDBC statements per row. Run it with
+ * {@code -Dspring.jpa.properties.hospital.id.allocation_size=1} to see the
+ * one-id-fetch-per-row baseline (the statement assertion then fails).
+ */
+@SpringBootTest
+class IdGenerationThroughputTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGenerationThroughputTest.class);
+
+    private static final int ROWS = 5_000;
+    private static final int ROWS_PER_TRANSACTION = 500;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void should_insert_patients_with_pooled_ids(){
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        statistics.clear();
+        long started = System.nanoTime();
+        for (int first = 0; first < ROWS; first += ROWS_PER_TRANSACTION) {
+            List<Patient> patients = new ArrayList<>(ROWS_PER_TRANSACTION);
+            for (int i = first; i < first + ROWS_PER_TRANSACTION; i++) {
+                patients.add(new Patient("Patient " + i, "Olaya", 37, "p" + i + "@email.com"));
+            }
+            transactionTemplate.executeWithoutResult(status -> patientRepository.saveAll(patients));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        long statements = statistics.getPrepareStatementCount();
+
+        log.info("{} patients in {} ms ({} rows/s), {} JDBC statements ({} per row)", ROWS, elapsedMillis,
+                ROWS * 1000L / Math.max(1, elapsedMillis), statements, (double) statements / ROWS);
+
+        // one id fetch per allocation block and one JDBC batch per 50 rows, not one of each per row
+        assertThat(patientRepository.count()).isEqualTo(ROWS);
+        assertThat(statements).isLessThan(ROWS / 10);
+    }
+    
+}
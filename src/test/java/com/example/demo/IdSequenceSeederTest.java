@@ -0,0 +1,78 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entities.Patient;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.services.IdSequenceSeeder;
+
+
+// H2 without sequence support gets the single-row sequence tables MySQL has.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:id-sequence-seeder",
+        "spring.jpa.properties.hibernate.dialect=com.example.demo.IdSequenceSeederTest$TableSequenceH2Dialect"})
+class IdSequenceSeederTest {
+
+    public static class TableSequenceH2Dialect extends H2Dialect {
+        @Override
+        public boolean supportsSequences() {
+            return false;
+        }
+
+        @Override
+        public boolean supportsPooledSequences() {
+            return false;
+        }
+    }
+
+    @Autowired
+    IdSequenceSeeder idSequenceSeeder;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldLiftSequenceAboveExistingIdsOnlyOnce() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // a row written while ids still came from hibernate_sequence
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createNativeQuery("insert into patient (id, age, first_name) values (500, 40, 'Legacy')")
+                .executeUpdate());
+
+        idSequenceSeeder.seed();
+        long seeded = nextVal(transactionTemplate);
+        idSequenceSeeder.seed();
+
+        assertThat(seeded).isEqualTo(501);
+        assertThat(nextVal(transactionTemplate)).isEqualTo(seeded);
+        Patient patient = patientRepository.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        assertThat(patient.getId()).isGreaterThan(500);
+    }
+
+    private long nextVal(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> ((Number) entityManager
+                .createNativeQuery("select next_val from patient_seq").getSingleResult()).longValue());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.sql.Types;
+import java.util.Properties;
+
+import org.hibernate.dialect.Dialect;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import com.zaxxer.hikari.HikariConfig;
+
+// The prod profile needs MySQL to start; this checks that it binds consistently with the intent of
+// its tuning. The tuning itself is validated with the load test against MySQL.
+class ProdProfilePropertiesTest {
+
+    @Test
+    void poolIsFixedAndRequestThreadsExceedIt() throws IOException {
+        Binder binder = prodBinder();
+        HikariConfig hikari = binder.bind("spring.datasource.hikari", HikariConfig.class).get();
+        ServerProperties server = binder.bind("server", ServerProperties.class).get();
+
+        // the threads above the pool serve requests that need no connection
+        assertThat(server.getTomcat().getThreads().getMax()).isGreaterThan(hikari.getMaximumPoolSize());
+        assertThat(server.getTomcat().getThreads().getMinSpare()).isLessThanOrEqualTo(server.getTomcat().getThreads().getMax());
+        assertThat(hikari.getMinimumIdle()).isEqualTo(hikari.getMaximumPoolSize());
+        assertThat(hikari.getMaxLifetime()).isGreaterThan(hikari.getKeepaliveTime());
+        assertThat(hikari.isAutoCommit()).isFalse();
+    }
+
+    @Test
+    void dialectKeepsMicrosecondsOnInnoDB() throws Exception {
+        String dialectClass = prodBinder().bind("spring.jpa.properties.hibernate.dialect", String.class).get();
+        Dialect dialect = (Dialect) Class.forName(dialectClass).getDeclaredConstructor().newInstance();
+
+        // Last-Modified and the change counters compare stored timestamps with in-memory ones
+        assertThat(dialect.getTypeName(Types.TIMESTAMP)).isEqualTo("datetime(6)");
+        assertThat(dialect.getTableTypeString()).containsIgnoringCase("engine=InnoDB");
+    }
+
+    @Test
+    void driverCachesStatementsAndRewritesBatches() throws IOException {
+        HikariConfig hikari = prodBinder().bind("spring.datasource.hikari", HikariConfig.class).get();
+
+        assertThat(hikari.getDataSourceProperties())
+                .containsEntry("cachePrepStmts", "true")
+                .containsEntry("useServerPrepStmts", "true")
+                .containsEntry("prepStmtCacheSize", "250")
+                .containsEntry("rewriteBatchedStatements", "true");
+    }
+
+    private static Binder prodBinder() throws IOException {
+        Properties properties = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application-prod.properties"));
+        MutablePropertySources sources = new MutablePropertySources();
+        sources.addFirst(new PropertiesPropertySource("prod", properties));
+        return new Binder(ConfigurationPropertySources.from(sources), new PropertySourcesPlaceholdersResolver(sources));
+    }
+}
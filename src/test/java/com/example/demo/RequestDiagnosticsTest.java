@@ -0,0 +1,143 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServlet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.config.RequestDiagnosticsFilter;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.repositories.ScheduleReservationRepository;
+import com.example.demo.services.AppointmentScheduleIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+// Not a @WebMvcTest: the counts come from the real Hibernate sessions behind the controllers.
+@SpringBootTest(properties = {"diagnostics.max-statements=2", "diagnostics.slow-request=1m", "diagnostics.server-timing=true"})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class RequestDiagnosticsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentScheduleIndex scheduleIndex;
+
+    @Autowired
+    ScheduleReservationRepository scheduleReservationRepository;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAll();
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        roomRepository.deleteAll();
+        scheduleReservationRepository.deleteAll();
+        scheduleIndex.clear();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void should_report_statements_and_loaded_entities_in_server_timing(CapturedOutput output) throws Exception{
+        saveAppointments(2);
+
+        String serverTiming = mockMvc.perform(get("/api/appointments"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Server-Timing");
+
+        // the table version, then appointments with their participants in one joined select
+        assertThat(serverTiming).matches("db;dur=[0-9.]+;desc=\"2 statements\", entities;desc=\"8 loaded\", app;dur=[0-9.]+");
+        assertThat(output).doesNotContain("request GET /api/appointments");
+    }
+
+    @Test
+    void should_log_requests_running_too_many_statements(CapturedOutput output) throws Exception{
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0);
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                doctor, new Room("Dermatology"), startsAt, startsAt.plusMinutes(30));
+
+        // answered from the second-level cache without a statement
+        mockMvc.perform(get("/api/doctors/" + doctor.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", startsWith("db;dur=0.00;desc=\"0 statements\"")));
+        // reservation, overlap probes, room lookup and the inserts
+        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isOk());
+
+        assertThat(output).doesNotContain("request GET /api/doctors");
+        assertThat(output).contains("Chatty request POST /api/appointment -> 200");
+    }
+
+    @Test
+    void should_not_send_server_timing_unless_asked_to() throws Exception{
+        RequestDiagnosticsFilter filter = new RequestDiagnosticsFilter(Duration.ofMinutes(1), 20, false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/doctors"), response,
+                new MockFilterChain(new HttpServlet() {}, (request, servletResponse, chain) -> servletResponse.getWriter().write("[]")));
+
+        assertThat(response.getContentAsString()).isEqualTo("[]");
+        assertThat(response.getHeader("Server-Timing")).isNull();
+    }
+
+    private void saveAppointments(int count){
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 8, 0);
+        for (int i = 0; i < count; i++) {
+            Patient patient = patientRepository.save(new Patient("Patient " + i, "Olaya", 37, "p" + i + "@email.com"));
+            Doctor doctor = doctorRepository.save(new Doctor("Doctor " + i, "Amalia", 24, "d" + i + "@hospital.accwe"));
+            Room room = roomRepository.save(new Room("Room " + i));
+            appointmentRepository.save(new Appointment(patient, doctor, room, startsAt, startsAt.plusMinutes(30)));
+        }
+    }
+
+}
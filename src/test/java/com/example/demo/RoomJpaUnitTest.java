@@ -63,7 +63,7 @@ class RoomJpaUnitTest {
         entityManager.persist(room1);
         entityManager.persist(room2);
 
-        Optional<Room> foundRoom= repository.findByRoomName(room2.getRoomName());
+        Optional<Room> foundRoom= repository.findById(room2.getRoomName());
         Room room = foundRoom.get();
 
         assertThat(room).isEqualTo(room2);
@@ -79,13 +79,31 @@ class RoomJpaUnitTest {
         entityManager.persist(room2);
         entityManager.persist(room3);
 
-        repository.deleteByRoomName(room2.getRoomName());
+        repository.deleteById(room2.getRoomName());
 
         Iterable rooms = repository.findAll();
 
         assertThat(rooms).hasSize(2).contains(room1, room3);
     }
 
+    @Test
+    void should_remove_room_and_report_affected_rows(){
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Operations");
+
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+        entityManager.flush();
+
+        assertThat(repository.removeByRoomName(room2.getRoomName())).isEqualTo(1);
+        assertThat(repository.removeByRoomName("Emergencies")).isZero();
+
+        entityManager.clear();
+        Iterable rooms = repository.findAll();
+
+        assertThat(rooms).hasSize(1);
+    }
+
     @Test
     void should_delete_all_rooms(){
         Room room1 = new Room("Dermatology");
@@ -0,0 +1,71 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.RollbackException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.entities.ScheduleReservation;
+import com.example.demo.repositories.ScheduleReservationRepository;
+
+
+// Not a @DataJpaTest: the two competing transactions must commit for real.
+@SpringBootTest
+class ScheduleReservationJpaUnitTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ScheduleReservationRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void should_create_reservation_with_initial_version(){
+        ScheduleReservation reservation = repository.save(new ScheduleReservation(ScheduleReservation.roomKey("Dermatology")));
+
+        assertThat(reservation).hasFieldOrPropertyWithValue("resource", "room:Dermatology");
+        assertThat(reservation.getVersion()).isZero();
+    }
+
+    @Test
+    void should_reject_second_of_two_concurrent_bookings_of_same_resource(){
+        String resource = ScheduleReservation.roomKey("Dermatology");
+        repository.save(new ScheduleReservation(resource));
+
+        EntityManager nodeOne = entityManagerFactory.createEntityManager();
+        EntityManager nodeTwo = entityManagerFactory.createEntityManager();
+        try {
+            nodeOne.getTransaction().begin();
+            nodeTwo.getTransaction().begin();
+
+            nodeOne.find(ScheduleReservation.class, resource, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            nodeTwo.find(ScheduleReservation.class, resource, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+
+            nodeOne.getTransaction().commit();
+
+            assertThatThrownBy(() -> nodeTwo.getTransaction().commit())
+                .isInstanceOf(RollbackException.class)
+                .hasCauseInstanceOf(OptimisticLockException.class);
+        } finally {
+            nodeOne.close();
+            nodeTwo.close();
+        }
+
+        assertThat(repository.findById(resource).get().getVersion()).isEqualTo(1L);
+    }
+    
+}
@@ -0,0 +1,86 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+
+
+// Not a @DataJpaTest: entries only reach the cache once their transaction commits.
+@SpringBootTest
+class SecondLevelCacheJpaUnitTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        patientRepository.deleteAll();
+        doctorRepository.deleteAll();
+        roomRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void should_read_doctors_and_patients_from_second_level_cache(){
+        Doctor doctor = doctorRepository.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Patient patient = patientRepository.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+
+        statistics.clear();
+        assertThat(doctorRepository.findById(doctor.getId())).isPresent();
+        assertThat(patientRepository.findById(patient.getId())).isPresent();
+
+        assertThat(statistics.getDomainDataRegionStatistics("doctors").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getDomainDataRegionStatistics("patients").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void should_list_rooms_from_query_cache_until_a_room_is_added(){
+        roomRepository.save(new Room("Dermatology"));
+        roomRepository.save(new Room("Oncology"));
+        long version = roomRepository.findTableVersion().getVersion();
+        assertThat(roomRepository.findAllAtVersion(version)).hasSize(2);
+
+        statistics.clear();
+        assertThat(roomRepository.findAllAtVersion(version)).hasSize(2);
+
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        roomRepository.save(new Room("Cardiology"));
+
+        assertThat(roomRepository.findAllAtVersion(roomRepository.findTableVersion().getVersion())).hasSize(3);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.entities.ChangeCounter;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.RoomRepository;
+import com.example.demo.services.BulkDeletionService;
+
+
+// Not a @DataJpaTest: the counters are raised when the writing transaction commits.
+@SpringBootTest
+class TableVersionJpaUnitTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    BulkDeletionService bulkDeletionService;
+
+    @AfterEach
+    void tearDown() {
+        doctorRepository.deleteAllInBatch();
+        roomRepository.deleteAllInBatch();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void should_count_each_committed_transaction_once(){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long initial = doctorRepository.findTableVersion().getVersion();
+
+        transactionTemplate.executeWithoutResult(status -> doctorRepository.saveAll(Arrays.asList(
+                new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"),
+                new Doctor("Cornelio","Andrea", 59, "c.andrea@hospital.accwe"))));
+        long afterInsert = doctorRepository.findTableVersion().getVersion();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            doctorRepository.save(new Doctor("Clarisa","Julia", 29, "c.julia@hospital.accwe"));
+            status.setRollbackOnly();
+        });
+        long afterRollback = doctorRepository.findTableVersion().getVersion();
+
+        assertThat(afterInsert).isEqualTo(initial + 1);
+        assertThat(afterRollback).isEqualTo(afterInsert);
+    }
+
+    @Test
+    void should_raise_a_single_shard_per_transaction(){
+        List<Long> before = jdbcTemplate.queryForList(
+                "select changes from change_counter_shards where table_name = 'doctors' order by shard", Long.class);
+
+        doctorRepository.save(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+        List<Long> after = jdbcTemplate.queryForList(
+                "select changes from change_counter_shards where table_name = 'doctors' order by shard", Long.class);
+
+        assertThat(after).hasSize(ChangeCounter.SHARDS);
+        int raised = 0;
+        for (int shard = 0; shard < ChangeCounter.SHARDS; shard++) {
+            raised += after.get(shard) - before.get(shard);
+        }
+        assertThat(raised).isEqualTo(1);
+    }
+
+    @Test
+    void should_count_single_statement_and_bulk_deletes(){
+        Doctor doctor = doctorRepository.save(new Doctor("Juan","Carlos", 34, "j.carlos@hospital.accwe"));
+        doctorRepository.save(new Doctor("Cornelio","Andrea", 59, "c.andrea@hospital.accwe"));
+        long beforeDeletes = doctorRepository.findTableVersion().getVersion();
+        long appointmentsBeforeDeletes = appointmentRepository.findTableVersion().getVersion();
+
+        doctorRepository.removeById(doctor.getId());
+        long afterRemove = doctorRepository.findTableVersion().getVersion();
+        bulkDeletionService.deleteAllDoctors();
+
+        assertThat(afterRemove).isGreaterThan(beforeDeletes);
+        assertThat(doctorRepository.findTableVersion().getVersion()).isGreaterThan(afterRemove);
+        // appointment lists embed their doctors
+        assertThat(appointmentRepository.findTableVersion().getVersion()).isGreaterThan(appointmentsBeforeDeletes);
+    }
+
+    @Test
+    void should_not_serve_list_cached_before_a_write_on_another_node(){
+        roomRepository.save(new Room("Dermatology"));
+        long version = roomRepository.findTableVersion().getVersion();
+        assertThat(roomRepository.findAllAtVersion(version)).hasSize(1);
+
+        // another node's write: committed behind this node's Hibernate, which cannot invalidate its query cache
+        jdbcTemplate.update("insert into room (room_name) values ('Oncology')");
+        jdbcTemplate.update("update change_counter_shards set changes = changes + 1 where table_name = 'room' and shard = 3");
+
+        long newVersion = roomRepository.findTableVersion().getVersion();
+        assertThat(newVersion).isNotEqualTo(version);
+        assertThat(roomRepository.findAllAtVersion(newVersion)).extracting(Room::getRoomName)
+                .containsExactlyInAnyOrder("Dermatology", "Oncology");
+    }
+}